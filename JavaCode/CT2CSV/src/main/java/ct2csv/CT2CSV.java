@@ -23,10 +23,7 @@ import java.io.File;
 import java.io.PrintWriter;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
-import java.util.HashMap;
 
 import cycronix.ctlib.*;
 
@@ -120,74 +117,60 @@ public class CT2CSV {
 		
 		new File(outFolder).mkdirs();
 
-		// loop thru sources and channels, build TimeNameValue ArrayList for each source
+		// loop thru sources, merge-join channels on time for each source
 		int nout=0;
 		for(String source : slist) {								// for each source
 			csvout = new PrintWriter(outFolder+File.separator+source+".csv");
 			
 			System.err.println("Processing source: "+source);
 //			output(source+"\n");
-			ArrayList<TimeNameValue> TNV = new ArrayList<TimeNameValue>();
 			ArrayList<String> clist = ctreader.listChans(rootFolder+File.separator+source);
 			if(clist == null) {
 				System.err.println("Warning:  no channels in source: "+source);
 				continue;
 			}
+			ArrayList<String> jlist = new ArrayList<String>();		// joined channels:  binary ones keep an (empty) column, not read
+			int[] jcol = new int[clist.size()];						// join column of each output column, -1 if none
+			for(int i=0; i<clist.size(); i++) {
+				String chan = clist.get(i);
+				char ftype = CTinfo.fileType(chan);
+				if(ftype != 's' && CTinfo.wordSize(ftype) == 1) System.err.println(source+"/"+chan+": "+chan+", unrecognized type: "+ftype);
+				if(ftype == 'B') jcol[i] = -1;
+				else {
+					jcol[i] = jlist.size();
+					jlist.add(chan);
+				}
+			}
 			
-			boolean warnonce=true;
-			for(String chan : clist) {															// for each channel in source
-				CTdata tdata = ctreader.getData(source,chan,tstart,tduration,"oldest");	// get all data 
-				if(tdata != null) {		// got data
-					tdata.setSwap(swapFlag);
-					double time[] = tdata.getTime();
-					int numData = time.length;
-					if(numData > MaxDat) {
-						if(warnonce) {
-							System.err.println(source+": limiting output lines: "+MaxDat+" (use option -n to change)");
-							warnonce=false;
-						}
-						numData = MaxDat;
-					}
-					char ftype = CTinfo.fileType(chan);
-
-					String[] dstring = tdata.getDataAsString(ftype);
-					if(dstring != null) {
-						for(int i=0; i<numData; i++) {
-							TNV.add(new TimeNameValue(time[i], chan, dstring[i]));
-						}
-					}
-					else {
-						System.err.println(source+"/"+chan+": "+chan+", unrecognized type: "+ftype);
-					}	
-				}	
-			}	
+			ctreader.setSwap(swapFlag);
+			CTjoin ctj = null;
+			if(!jlist.isEmpty()) {
+				if(tstart > 0.) ctj = ctreader.join(source, jlist, ctreader.oldTime(source)+tstart, tduration, "absolute", "exact");
+				else			ctj = ctreader.join(source, jlist, 0., tduration, "oldest", "exact");		// one row per distinct time
+			}
 			
-			// now re-sort by time and spit out in CSV format
-			Collections.sort(TNV, new TNVsort());
+			int nrow = 0;
+			while(ctj != null && ctj.next()) {
+				if(nrow == 0) {
+					output("DateTime");			// print header
+					for(int i=0; i<clist.size(); i++) output(","+clist.get(i));
+					output("\n");
+				}
+				if(nrow >= MaxDat) {
+					System.err.println(source+": limiting output lines: "+MaxDat+" (use option -n to change)");
+					break;
+				}
+				printLine(ctj, jcol, formatTime(ctj.getTime()));
+				nrow++;
+			}
+			if(ctj != null) ctj.close();
+			csvout.close();
 			
-			if(TNV.size() == 0) {
+			if(nrow == 0) {
 				System.err.println("Warning:  No data processed from source: "+source);
 				continue;
 			}
-
 			++nout;
-			output("DateTime");			// print header
-			for(int i=0; i<clist.size(); i++) output(","+clist.get(i));
-			output("\n");
-
-			double told=TNV.get(0).time;			// initialize	
-			HashMap<String,String>vmap = new HashMap<String,String>();
-
-			for(TimeNameValue tnv:TNV) {
-				if(tnv.time > told) {					// output line if time advances past prior
-					printLine(clist, formatTime(told), vmap);
-					told = tnv.time;
-					vmap.clear();
-				}
-				vmap.put(tnv.name, tnv.value);
-			}
-			printLine(clist, formatTime(told), vmap);		// last line
-			csvout.close();
 		}
 		
 		if(nout>0) System.err.println("Results in folder: "+outFolder);
@@ -196,11 +179,11 @@ public class CT2CSV {
 
 	//---------------------------------------------------------------------------------	
 	// print a CSV line of values	
-	private static void printLine(ArrayList<String>clist, String time, HashMap<String,String>vmap) {
+	private static void printLine(CTjoin ctj, int[] jcol, String time) {
 		output(time);
 		String vc;
-		for(int i=0; i<clist.size(); i++) {	
-			vc = vmap.get(clist.get(i));
+		for(int i=0; i<jcol.length; i++) {	
+			vc = (jcol[i] < 0) ? null : ctj.getString(jcol[i]);
 			if(vc != null) 	output(","+vc);
 			else			output(",");		// v may contain empty string if value missing
 		}
@@ -230,29 +213,3 @@ public class CT2CSV {
 	
 
  }
-
-//---------------------------------------------------------------------------------	
-//  time name value triple data object
-class TimeNameValue {
-	double time;
-    String name;
-    String value;
-
-    TimeNameValue(double time, String name, String value) {
-    	this.time = time;
-        this.name = name;
-        this.value = value;
-    }
-}
-
-// sort TimeNameValue ArrayList first by time, then by chanName
-class TNVsort implements Comparator<TimeNameValue> {
-	@Override
-	public int compare(TimeNameValue tnv1, TimeNameValue tnv2) {
-		if(tnv1.time > tnv2.time) 	return 1;
-		else if(tnv1.time == tnv2.time) {
-			return tnv1.name.compareTo(tnv2.name);
-		}
-		else						return -1;
-	}
-}
\ No newline at end of file
@@ -129,8 +129,10 @@ public class CTadmin extends Application {
 			}
 
 			CTinfo.debugPrint("refreshTree, CTlocation: "+CTlocation);
-			if(CTlocation!=null && CTlocation.length()>0 /* && myCTreader==null */) 
+			if(CTlocation!=null && CTlocation.length()>0 /* && myCTreader==null */) {
+				if(myCTreader != null) myCTreader.close();			// release folder watches of replaced reader
 				myCTreader = new CTreader(CTlocation);				// default startup open
+			}
 			
 			CTinfo.debugPrint("refreshTree, myCTreader: "+myCTreader);
 			if(myCTreader != null) {
@@ -143,6 +145,7 @@ public class CTadmin extends Application {
 					if(tmp.length > 1) {
 //						CTlocationFullPath = CTlocationFullPath.substring(0,CTlocationFullPath.lastIndexOf('/'));	// try parent folder
 						CTlocationFullPath = CTlocationFullPath.substring(0,CTlocationFullPath.lastIndexOf(File.separatorChar));	// try parent folder
+						myCTreader.close();
 						myCTreader = new CTreader(CTlocationFullPath);
 						String testSource = tmp[tmp.length-1];
 						System.err.println("testSource: "+testSource);
@@ -160,6 +163,7 @@ public class CTadmin extends Application {
 				if(CTsources.size()==0) {
 					CTopenMessage = "No CT sources found at: "+CTlocation;
 					CTlocation = "";					// trigger empty treeView
+					myCTreader.close();
 					myCTreader = null;
 				}
 				
@@ -17,25 +17,21 @@ limitations under the License.
 package cycronix.ctlib;
 
 import java.io.File;
-import java.io.FileFilter;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.text.SimpleDateFormat;
 //import java.nio.file.Path;
 //import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.regex.Pattern;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 /**
  * CloudTurbine utility class that extends File class to include zip-files
@@ -88,7 +84,7 @@ class CTFile extends File {
 	CTFile(String path) {
 		super(path = convertGzip(path));
 //		System.err.println("new CTFile path: "+path);
-		myPath = new String(path);
+		myPath = path;
 		
 		if(path.endsWith(".zip") || path.endsWith(".gz")) fileType = FileType.ZIP;
 		if(isTFILE()) fileType = FileType.TFOLDER;		// need better filter
@@ -105,7 +101,7 @@ class CTFile extends File {
 	private CTFile(String path, String myzipfile, String mypath) {
 		super(path);
 //		System.err.println("CTFile, path: "+path+", myzipfile: "+myzipfile+", mypath: "+mypath);
-		myPath = new String(mypath);		// note:  here myPath is short zip-entry name (inconsistent)
+		myPath = mypath;		// note:  here myPath is short zip-entry name (inconsistent)
 		
 		// following to give usable path so that fileTime works.  but other places breaks ??!!
 		myPath = myzipfile.substring(0,myzipfile.lastIndexOf('.')) + File.separator + myPath;	// full effective zip entry path for relative timestamps to work
@@ -123,7 +119,7 @@ class CTFile extends File {
 	 */
 	public CTFile(String mypath, String myzipfile) {
 		super(mypath);
-		myPath = new String(mypath);		// note:  here myPath is short zip-entry name (inconsistent)
+		myPath = mypath;		// note:  here myPath is short zip-entry name (inconsistent)
 		myPath = myzipfile.substring(0,myzipfile.lastIndexOf('.')) + File.separator + myPath;	// full effective zip entry path for relative timestamps to work
 //		System.err.println("CTFile, myzipfile: "+myzipfile+", mypath: "+mypath);
 
@@ -135,7 +131,7 @@ class CTFile extends File {
 	private CTFile(String path, String[] files, String myzipfile) {
 		super(path);
 		myZipFile = myzipfile;
-		myPath = new String(path);
+		myPath = path;
     	myPath = myzipfile.substring(0,myzipfile.lastIndexOf('.')) + File.separator + myPath;	// full effective zip entry path for relative timestamps to work
 
     	myFiles = files;				// this can clobber pre-existing files at this path, need to append
@@ -153,11 +149,10 @@ class CTFile extends File {
 	}
 */	
 	//---------------------------------------------------------------------------------	
-	// convert .gz to .zip
+	// gzip'd zip (CTwriter gzip mode):  file.zip.gz is read as file.zip, 
+	// decompressed in memory when opened (CTzipFile.open), no temp file
 	private static String convertGzip(String path) {
-		if(path.endsWith(".gz")) {
-			path = gunzip(path);
-		}
+		if(path.endsWith(".zip.gz")) path = path.substring(0, path.length()-3);
 		return path;
 	}
 	
@@ -269,7 +264,9 @@ class CTFile extends File {
 
 			for(int i=0; i<myFiles.length; i++) {
 				//				String fname = Paths.get(myFiles[i]).getName(0).toString();	
-				String fname = myFiles[i].split(File.pathSeparator)[0];		// Java 1.6 compat
+				String fname = myFiles[i];
+				int ip = fname.indexOf(File.pathSeparatorChar);
+				if(ip >= 0) fname = fname.substring(0, ip);				// Java 1.6 compat (was split)
 //				System.err.println("ZENTRY, myFiles["+i+"]: "+myFiles[i]+", fname: "+fname);
 				clist[i] = new CTFile(fname,myZipFile,myFiles[i]);
 			}
@@ -287,18 +284,19 @@ class CTFile extends File {
 			
 		default:				// conventional file...
 //			File[] flist = super.listFiles();
-			File[] flist = super.listFiles(new FileFilter() {
-			    @Override
-			    public boolean accept(File file) {
-			    	if(file.getName().startsWith("_")) return false;			// "_" is CT-hidden prefix
-			        return !file.isHidden();			// skip hidden files
-			    }
-			});
+			String[] flist = super.list();				// names:  one CTFile per entry (no intermediate File)
 			if(flist == null) return null;
+			String dir = getPath();
+			if(!dir.endsWith(File.separator)) dir += File.separator;
 			clist = new CTFile[flist.length];
-			for(int i=0; i<clist.length; i++) {
-				clist[i] = new CTFile(flist[i].getPath());
+			int nfile = 0;
+			for(String fname:flist) {
+				if(fname.startsWith("_")) continue;				// "_" is CT-hidden prefix
+				CTFile f = new CTFile(dir + fname);
+				if(f.isHidden()) continue;						// skip hidden files
+				clist[nfile++] = f;
 			}
+			if(nfile < clist.length) clist = Arrays.copyOf(clist, nfile);
 			Arrays.sort(clist, fileTimeComparator);		// make sure sorted (newTime etc presumes)
 			return clist;		// wrap in CTFile class
 		}
@@ -473,28 +471,17 @@ class CTFile extends File {
 //			if(isZip || isEntry) return null;
 		case ZFILE:			// zipoutput
 			//		if(isFile) {		
+			CTzipPool.Handle zhandle = null;
 			try {
-				synchronized(CTcache.cacheLock) {		// don't let cache close while in use
+				zhandle = CTcache.ZipFilePool.acquire(myZipFile);		// pool won't close while in use
+				{
 					//				thisTime = System.nanoTime(); System.err.println("ckp1: "+((thisTime-startTime)/1000000.)); startTime = thisTime;
-					ZipFile thisZipFile = CTcache.cachedZipFile(myZipFile);
+					CTzipFile thisZipFile = zhandle.zipFile();
 					//				ZipFile thisZipFile = new ZipFile(myZipFile);
 					//				thisTime = System.nanoTime(); System.err.println("ckp2: "+((thisTime-startTime)/1000000.)); startTime = thisTime;
 
-					// note:  myPath for zip-entry is not full-path as it is with other CTFile...  <---FIXED and adjusted right below!
-					String mypathfs = myPath.replace('\\','/');		// myPath with fwd slash
-
-					// strip leading file path to get just the zip-entry part!  always will be time/name format.
-					String[] subDirs = mypathfs.split(Pattern.quote("/"));
-					
-/*			// following code to enable multi-tier zip entries		
-					String leadingPath = myZipFile.substring(0,myZipFile.lastIndexOf(".zip")) + "/";
-					mypathfs = mypathfs.replace(leadingPath, "");
-					System.err.println("ZIP mypathfs: "+mypathfs+", myZipFile: "+myZipFile+", leadingPath: "+leadingPath+", myPath: "+myPath);
-*/
-					if(subDirs.length >= 2) mypathfs = subDirs[subDirs.length-2] + "/" + subDirs[subDirs.length-1];
-					else					System.err.println("WARNING!!!  Unexpected zip-entry format: "+mypathfs);
-
-					ZipEntry ze = thisZipFile.getEntry(mypathfs);			// need fullpath!
+					String mypathfs = zipEntryName();
+					CTzipFile.Entry ze = thisZipFile.getEntry(mypathfs);			// need fullpath!
 					//				thisTime = System.nanoTime(); System.err.println("ckp3: "+((thisTime-startTime)/1000000.)); startTime = thisTime;
 
 					if(ze == null) {
@@ -502,13 +489,7 @@ class CTFile extends File {
 						//					CTinfo.debugPrint(cacheProfile, "zip NULL ZE: "+((System.nanoTime()-startTime)/1000000.));
 						throw new IOException("Null ZipEntry, zipfile: "+myZipFile+", entry: "+mypathfs);
 					}
-					int zsize = (int)ze.getSize();
-					data = new byte[zsize];
-					InputStream zis = thisZipFile.getInputStream(ze);
-					int len, nread=0;
-					while ((len = zis.read(data,nread,zsize-nread)) > 0) nread+=len;
-					//		    		System.err.println("zip nread: "+nread+", ze.size: "+ze.getSize());
-					zis.close();
+					data = thisZipFile.read(ze);			// copy (STORED) or inflate directly into data
 					//				thisTime = System.nanoTime(); System.err.println("ckp4: "+((thisTime-startTime)/1000000.)); startTime = thisTime;
 
 					//				thisZipFile.close();
@@ -517,6 +498,8 @@ class CTFile extends File {
 //				System.err.println("CTFile.read: "+e);		// file can be missing on trim
 				throw e;
 //				e.printStackTrace();
+			} finally {
+				CTcache.ZipFilePool.release(zhandle);
 			}
 			break;
 		default:		// conventional file
@@ -546,6 +529,126 @@ class CTFile extends File {
 		return data;
 	}
 	
+	//---------------------------------------------------------------------------------	
+	/**
+	 * CTfile range reader.  reads len bytes at offset without reading the whole file or zip-entry
+	 * (positional read for native files, bounded inflate for zip-entries).
+	 * @param offset start byte
+	 * @param len number of bytes
+	 * @return byte[] data read
+	 * @throws Exception on error
+	 */
+	byte[] read(long offset, int len) throws Exception {
+		byte[] data = CTcache.DataCache.get(myPath);
+		if(data != null) return Arrays.copyOfRange(data, (int)offset, (int)offset+len);		// whole file already cached
+		
+		data = new byte[len];
+		switch(fileType) {
+		case ZIP:
+		case ZENTRY:
+			return null;
+		case ZFILE:
+			CTzipPool.Handle zhandle = CTcache.ZipFilePool.acquire(myZipFile);
+			try {
+				CTzipFile zfile = zhandle.zipFile();
+				CTzipFile.Entry ze = zfile.getEntry(zipEntryName());
+				if(ze == null) throw new IOException("Null ZipEntry, zipfile: "+myZipFile+", entry: "+zipEntryName());
+				zfile.read(ze, offset, data, 0, len);
+			} finally {
+				CTcache.ZipFilePool.release(zhandle);
+			}
+			break;
+		default:		// conventional file
+			RandomAccessFile raf = new RandomAccessFile(myPath, "r");
+			try {
+				FileChannel fc = raf.getChannel();
+				ByteBuffer bb = ByteBuffer.wrap(data);
+				long pos = offset;
+				while(bb.hasRemaining()) {
+					int n = fc.read(bb, pos);
+					if(n < 0) throw new IOException("Unexpected end of file: "+myPath);
+					pos += n;
+				}
+			} finally {
+				raf.close();
+			}
+			break;
+		}
+		return data;
+	}
+
+	/**
+	 * size of file data in bytes (zip-entry uncompressed size for zip files)
+	 * @return number of bytes
+	 * @throws Exception on error
+	 */
+	long dataLength() throws Exception {
+		byte[] data = CTcache.DataCache.get(myPath);
+		if(data != null) return data.length;
+		
+		switch(fileType) {
+		case ZIP:
+		case ZENTRY:
+			return 0;
+		case ZFILE:
+			CTzipPool.Handle zhandle = CTcache.ZipFilePool.acquire(myZipFile);
+			try {
+				CTzipFile.Entry ze = zhandle.zipFile().getEntry(zipEntryName());
+				return (ze==null) ? 0 : ze.getSize();
+			} finally {
+				CTcache.ZipFilePool.release(zhandle);
+			}
+		default:
+			return super.length();
+		}
+	}
+	
+	//---------------------------------------------------------------------------------	
+	// zip-entry name (time/name) for this ZFILE
+	
+	private String zipEntryName() {
+		// note:  myPath for zip-entry is not full-path as it is with other CTFile...  <---FIXED and adjusted right below!
+		String mypathfs = myPath.replace('\\','/');		// myPath with fwd slash
+
+		// strip leading file path to get just the zip-entry part!  always will be time/name format.
+		String[] subDirs = mypathfs.split(Pattern.quote("/"));
+		
+/*			// following code to enable multi-tier zip entries		
+		String leadingPath = myZipFile.substring(0,myZipFile.lastIndexOf(".zip")) + "/";
+		mypathfs = mypathfs.replace(leadingPath, "");
+		System.err.println("ZIP mypathfs: "+mypathfs+", myZipFile: "+myZipFile+", leadingPath: "+leadingPath+", myPath: "+myPath);
+*/
+		if(subDirs.length >= 2) mypathfs = subDirs[subDirs.length-2] + "/" + subDirs[subDirs.length-1];
+		else					System.err.println("WARNING!!!  Unexpected zip-entry format: "+mypathfs);
+
+		return mypathfs;
+	}
+
+	/**
+	 * CTfile buffer reader.  Like read(), but STORED (uncompressed) zip entries are returned as
+	 * zero-copy slices of the memory-mapped zip file, bypassing the DataCache.
+	 * @return ByteBuffer of file data, position 0
+	 * @throws Exception on error
+	 */
+	ByteBuffer readBuffer() throws Exception {
+		if(fileType == FileType.ZFILE) {
+			byte[] data = CTcache.DataCache.get(myPath);
+			if(data != null) return ByteBuffer.wrap(data);
+
+			CTzipPool.Handle zhandle = CTcache.ZipFilePool.acquire(myZipFile);
+			try {
+				CTzipFile zfile = zhandle.zipFile();
+				CTzipFile.Entry ze = zfile.getEntry(zipEntryName());
+				if(ze == null) throw new IOException("Null ZipEntry, zipfile: "+myZipFile+", entry: "+zipEntryName());
+				if(zfile.isStored(ze)) return zfile.buffer(ze);		// mapped slice stays valid after zip is closed
+			} finally {
+				CTcache.ZipFilePool.release(zhandle);
+			}
+		}
+		byte[] data = read();
+		return (data==null) ? null : ByteBuffer.wrap(data);
+	}
+	
 	//---------------------------------------------------------------------------------	
 	// ZipMap:  create index of zipped folder/files.  
 	// Map keys are timestamp-folders, map values are string-arrays of channels per folder
@@ -553,38 +656,49 @@ class CTFile extends File {
 
 	private Map<String, String[]> ZipMap(String zipfile) {
 
-		synchronized(CTcache.cacheLock) {							// convert miss to hit before next thread query
-			Map<String,String[]>zipMap = CTcache.ZipMapCache.get(myPath);
+		Map<String,String[]>zipMap = CTcache.ZipMapCache.get(myPath);
+		if(zipMap != null) {											// hit, no locking
+			CTstats.counter(CTstats.ZIPMAP_HIT).incrementAndGet();
+			return zipMap;
+		}
+
+		synchronized(zipMapLock(myPath)) {							// convert miss to hit before next thread query (same zip only)
+			zipMap = CTcache.ZipMapCache.get(myPath);
 			if(zipMap != null) {
 //				CTinfo.debugPrint("ZipMapCache hit: "+myPath);
+				CTstats.counter(CTstats.ZIPMAP_HIT).incrementAndGet();
 				return zipMap;					
 			}
 //			else CTinfo.debugPrint("ZipMapCache miss: "+myPath);
+			CTstats.counter(CTstats.ZIPMAP_MISS).incrementAndGet();
 
 			zipMap = new TreeMap<String, String[]>(folderTimeComparator);		// make a new one, sorted by folder time
+			CTzipPool.Handle zhandle = null;
 			try{		//get the zip file content
 				int numEntries=0;
 				String[] entry;
-				synchronized(CTcache.cacheLock) {			// no cache-close while in use
-					ZipFile zfile = CTcache.cachedZipFile(zipfile);		// this can throw exception being created in RT
+				zhandle = CTcache.ZipFilePool.acquire(zipfile);		// this can throw exception being created in RT
+				{
+					CTzipFile zfile = zhandle.zipFile();
 					//	ZipFile zfile = new ZipFile(zipfile);		// just open zipfile, let ZipMap itself do the caching
 
-					Enumeration<? extends ZipEntry> zenum = zfile.entries();
-					numEntries = zfile.size();		// convert to array, easier loop control
-					entry = new String[numEntries];
+					entry = zfile.entryNames();		// central directory already parsed on open
+					numEntries = entry.length;
 					//			System.err.println("Building ZipMap for: "+myPath+", numEntries: "+numEntries);
-
-					for(int i=0; i<numEntries; i++) entry[i] = zenum.nextElement().getName();
 				}
+				CTcache.ZipFilePool.release(zhandle);		// done with zipfile itself
+				zhandle = null;
 				Arrays.sort(entry);				// sort so that following add-logic gets all channels in same timestamp folder
 
 				String thisfolder=null;
 				ArrayList<String>flist=null;
+				HashSet<String> chans = new HashSet<String>();		// channel names, for bloom filter
 
 				// loop thru zipfile entries, add them to TreeMap
 				for(int i=0; i<numEntries; i++) {
 					//				System.err.println("ZipMap entry["+i+"]: "+entry[i]);
 					String[] spentry = entry[i].split("/");				// Java 1.6 compat 
+					chans.add(spentry[spentry.length-1]);
 
 					String folder = spentry[0];
 					if(spentry.length > 1) {							// Java 1.6 compat
@@ -613,6 +727,7 @@ class CTFile extends File {
 				// pre-sort zipMap here
 
 				CTcache.ZipMapCache.put(myPath, zipMap);			// cache
+				CTcache.ChanBloomCache.put(myPath, CTbloom.create(chans));
 				//		} catch(IOException ex) { System.err.println("ZipMap Exception on zipfile: "+zipfile); ex.printStackTrace(); }
 			} catch(Exception ex) { 
 				// MJM 8/2/18:  following null causes windows CTweb to fail fetch...
@@ -620,6 +735,8 @@ class CTFile extends File {
 //				CTinfo.debugPrint("ZipMap Exception on zipfile: "+zipfile+", exception: "+ex.getMessage()); 
 				System.err.println("ZipMap Exception on zipfile: "+zipfile+", exception: "+ex.getMessage()); 
 				//			ex.printStackTrace(); 
+			} finally {
+				CTcache.ZipFilePool.release(zhandle);
 			}
 
 //			CTinfo.debugPrint("***ZipMapCache built: "+myPath);
@@ -630,62 +747,44 @@ class CTFile extends File {
 		}
 	}
 
+	// striped locks for ZipMap construction:  threads building maps for different zip files don't wait on each other
+	static private final Object[] zipMapLocks = new Object[64];
+	static { for(int i=0; i<zipMapLocks.length; i++) zipMapLocks[i] = new Object(); }
+
+	static private Object zipMapLock(String key) {
+		return zipMapLocks[(key.hashCode() & 0x7fffffff) % zipMapLocks.length];
+	}
+
 	//---------------------------------------------------------------------------------	
 	static private String fileName(String path) {
 //		return path.substring(path.lastIndexOf(File.separator) + 1);
 //		System.err.println("CTFile fileName, path: "+path+", fileName: "+new File(path).getName());
-		return new File(path).getName();
+		int i = Math.max(path.lastIndexOf('/'), path.lastIndexOf(File.separatorChar));
+		if(i < 0) return path;
+		if(i == path.length()-1) return new File(path).getName();		// trailing separator (rare)
+		return path.substring(i+1);								// no File allocation
 	}
 	
-	//---------------------------------------------------------------------------------	
-	// unzip a gzip file
-    private static String gunzip(String gfile) {
-    	if(!gfile.endsWith(".gz")) return gfile;		// make sure is .gz file
-    	String zfile = gfile.replace(".gz", "");
- 	   	zfile = tempFile(zfile);		// need full path to avoid collisions?
-    	File zFile = new File(zfile);
-    	if(zFile.exists()) {
-//        	System.err.println("gunzip file exists!: "+gfile);
-    		return zfile;				// done
-    	}
-//    	System.err.println("gunzip file new: "+gfile);
-
-    	byte[] buffer = new byte[65536];
-    	try {
-    		GZIPInputStream gzis = new GZIPInputStream(new FileInputStream(gfile));
-    		FileOutputStream out = new FileOutputStream(zfile);
- 
-    		int len;
-    		while ((len = gzis.read(buffer)) > 0) out.write(buffer, 0, len);
-
-    		gzis.close();
-    		out.close();
-    		zFile.deleteOnExit();						// auto-cleanup exported files
- 
-    	} catch (IOException ex){
-    		ex.printStackTrace();   
-    	}
-//		System.err.println("Export "+gfile+" to zip: "+zfile);
-    	return zfile;
-   } 
-    
-    // create temporary file.  this still has issue:
-    // folder-chain is "orphaned" (not deleted on exit)
-    
-    static long uniqueID = 0;
-    private static String tempFile(String fileName){
-    	if(uniqueID == 0) uniqueID = System.currentTimeMillis();
-        String tempFile = System.getProperty("java.io.tmpdir") + File.separator + "com.cycronix.CloudTurbine" + File.separator + "CT"+uniqueID + File.separator + fileName;
-        File tfile = new File(tempFile);
-        tfile.getParentFile().mkdirs();
-        tfile.deleteOnExit();
-        return tfile.getAbsolutePath();
-   }
-    
-    
   //---------------------------------------------------------------------------------	
   //fileTime:  parse time from file name, units: full-seconds
-    private SimpleDateFormat sdflast=null;
+    private int sdflast = -1;							// index of most recently successful TFILE format
+    
+    // TFILE time formats, in try order.  SimpleDateFormat is not thread-safe:  precompiled once per thread
+    private static final String[] TFILE_FORMATS = {
+    	"yyyy.MM.dd HH.mm.ss.SSS",
+    	"yyyy.MM.dd HH.mm.ss",
+    	"yyyyMMdd_HHmmss",
+    	"yyyyMMddHHmmssSS",				// dlink2015081713324201.jpg
+    	"yyyy-MM-dd HH.mm.ss"
+    };
+    private static final ThreadLocal<SimpleDateFormat[]> tfileFormats = new ThreadLocal<SimpleDateFormat[]>() {
+    	@Override
+    	protected SimpleDateFormat[] initialValue() {
+    		SimpleDateFormat[] sdf = new SimpleDateFormat[TFILE_FORMATS.length];
+    		for(int i=0; i<sdf.length; i++) sdf[i] = new SimpleDateFormat(TFILE_FORMATS[i]);
+    		return sdf;
+    	}
+    };
     
     /**
      * Parse time from the CTFile name, units: full-seconds
@@ -754,16 +853,16 @@ class CTFile extends File {
 		} 
 		else {
 //			fname = fname.replace(".jpg", "");
-			fname = fname.replace("dlink", "");
+			if(fname.contains("dlink")) fname = fname.replace("dlink", "");
 
 			boolean pslash = fname.lastIndexOf("-") > 15;
 
 			// e.g.  "2014-09-10 16.00.32-1-1"
 			//  				System.err.println("entry fname: "+fname);
-			fname = fname.replaceFirst("-", ".").replaceFirst("-",".");				// replace first two slashes with dot
+			fname = replaceFirst(replaceFirst(fname, '-', '.'), '-', '.');				// replace first two slashes with dot
 			islash = fname.lastIndexOf("-");
 			if(islash>=0) {
-				fname = fname.replaceFirst("-", ".");
+				fname = replaceFirst(fname, '-', '.');
 				fname = fname.replace("-", "");
 				int nmsec = fname.length() - islash - 1;
 				if(nmsec == 1) fname += "00";
@@ -771,57 +870,50 @@ class CTFile extends File {
 			}
 			//  				System.err.println("exit fname:  "+fname);
 
+			SimpleDateFormat[] sdf = tfileFormats.get();
+			
 			// try most recently successful first
-			if(sdflast != null) {
+			if(sdflast >= 0) {
 				try {
-					ftime = sdflast.parse(fname).getTime();
+					ftime = sdf[sdflast].parse(fname).getTime();
 				}
-				catch(Exception e) { sdflast = null; }
+				catch(Exception e) { sdflast = -1; }
 			}
 
 			// try various formats
-			if(sdflast == null)
-				try { 				
-					SimpleDateFormat sdf = new SimpleDateFormat("yyyy.MM.dd HH.mm.ss.SSS");
-					if(pslash) fname = fname + "00";			// ensure msec if trailing dash syntax 
-					ftime = sdf.parse(fname).getTime();
-					sdflast=sdf;
-				} catch(Exception e1) {
+			if(sdflast < 0) {
+				if(pslash) fname = fname + "00";			// ensure msec if trailing dash syntax 
+				for(int i=0; i<sdf.length; i++) {
 					try {
-						SimpleDateFormat sdf = new SimpleDateFormat("yyyy.MM.dd HH.mm.ss");
-						ftime = sdf.parse(fname).getTime();
-						sdflast = sdf;
-					} catch(Exception e2) {
-						try {
-							SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss");
-							ftime = sdf.parse(fname).getTime();
-							sdflast=sdf;
-
-						} catch(Exception e3) {
-							try {				  		// dlink2015081713324201.jpg
-								SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMddHHmmssSS");
-								ftime = sdf.parse(fname).getTime();
-								//								System.err.println("dlink ftime: "+ftime+", fname: "+fname);
-								sdflast=sdf;
-							}
-							catch(Exception e4) {
-								try { 				
-									SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH.mm.ss");	
-									ftime = sdf.parse(fname).getTime();
-									sdflast=sdf;
-								} catch(Exception e5) { sdflast=null; };
-							}
-						};
-					};
-				};
+						ftime = sdf[i].parse(fname).getTime();
+						sdflast = i;
+						break;
+					} catch(Exception e) {};
+				}
+			}
 		}
 //		System.err.println("tfolderTime, fileTime("+fname+"): "+ftime);
 		return ftime / 1000.;
   	}
   	
+  	// replace first occurrence of character (String.replaceFirst without regex)
+  	private static String replaceFirst(String s, char from, char to) {
+  		int i = s.indexOf(from);
+  		if(i < 0) return s;
+  		char[] c = s.toCharArray();
+  		c[i] = to;
+  		return new String(c);
+  	}
+  	
     //---------------------------------------------------------------------------------	
   	private boolean isTimeFile(String fname) {
   		if(fname.endsWith(".zip")) fname = fname.substring(0,fname.length()-4);		// strip (only) trailing ".zip"
+  		int len = fname.length();
+  		if(len > 0 && len < 19) {												// quick check:  all digits, no overflow
+  			int i = 0;
+  			while(i < len && fname.charAt(i) >= '0' && fname.charAt(i) <= '9') i++;
+  			if(i == len) return true;
+  		}
 		try {
 			Long.parseLong(fname);
 			return true;
@@ -885,6 +977,7 @@ class CTFile extends File {
   	 */
 	public boolean containsFile(CTmap cm) {
 		if(!this.isDirectory()) return false;
+		if(!mayContain(cm)) return false;					// zip block without any cm channel, skip walk
 		
 		CTFile[] listOfFiles = this.listFiles();
 		if(listOfFiles == null) return false;
@@ -899,4 +992,14 @@ class CTFile extends File {
 		}
 		return false;
 	}
+	
+	// mayContain:  check channel bloom filter of zip block (computed on first ZipMap scan).
+	// false if no channel in ctmap is in this zip;  true if one may be (or not zip, or not yet scanned)
+	boolean mayContain(CTmap cm) {
+		if(myZipFile == null) return true;
+		long[] bloom = CTcache.ChanBloomCache.get(myZipFile);
+		if(bloom == null) return true;
+		for(String chan:cm.keySet()) if(CTbloom.mayContain(bloom, chan)) return true;
+		return false;
+	}
 }
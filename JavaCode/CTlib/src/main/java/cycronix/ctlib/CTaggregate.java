@@ -0,0 +1,163 @@
+/*
+Copyright 2026 agent
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package cycronix.ctlib;
+
+import java.util.Arrays;
+
+/**
+ * CloudTurbine utility class:  fixed-window statistics (count, min, max, mean) of numeric channel data.
+ * Points are added in time order (e.g. CTcursor chunks) in one pass.  Windows are aligned to multiples
+ * of the window size since epoch (e.g. whole minutes);  windows without data are omitted.
+ * Results are columnar:  one array per statistic, one element per window.
+ * <p>
+ * @author agent
+ * @version 2026/10/19
+ *
+*/
+
+public class CTaggregate {
+
+	private final double window;				// window size (sec)
+	private final char ftype;
+	private boolean swap = false;
+
+	private double[] wtime = new double[64];	// window start times
+	private long[] count = new long[64];
+	private double[] min = new double[64], max = new double[64], sum = new double[64];
+	private int nwin = 0;
+	private long iwin = Long.MIN_VALUE;			// current window index
+
+	/**
+	 * Constructor
+	 * @param chan channel name (determines data type)
+	 * @param window window size (sec)
+	 */
+	public CTaggregate(String chan, double window) {
+		this.ftype = CTinfo.fileType(chan);
+		this.window = window;
+	}
+
+	/**
+	 * set word swap (as CTdata.setSwap) for input data
+	 * @param swap true: BIG_ENDIAN, false: LITTLE_ENDIAN (default)
+	 */
+	public void setSwap(boolean swap) {
+		this.swap = swap;
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	/**
+	 * Add data, in time order
+	 * @param ctd data chunk (e.g. from CTcursor)
+	 */
+	public void add(CTdata ctd) {
+		if(ctd == null) return;
+		ctd.setSwap(swap);
+		double[] v = CTdownsample.values(ctd, ftype);
+		if(v == null) return;
+		int n = Math.min(v.length, ctd.size());
+		for(int i=0; i<n; i++) add(ctd.time(i), v[i]);
+	}
+
+	/**
+	 * Add one point, in time order
+	 * @param t time (sec)
+	 * @param v value
+	 */
+	public void add(double t, double v) {
+		if(Double.isNaN(v)) return;
+		long w = (long)Math.floor(t / window);
+		if(w != iwin || nwin == 0) {						// new window
+			if(nwin == wtime.length) grow();
+			wtime[nwin] = w * window;
+			count[nwin] = 0;
+			min[nwin] = max[nwin] = v;
+			sum[nwin] = 0.;
+			nwin++;
+			iwin = w;
+		}
+		int k = nwin - 1;
+		count[k]++;
+		if(v < min[k]) min[k] = v;
+		if(v > max[k]) max[k] = v;
+		sum[k] += v;
+	}
+
+	private void grow() {
+		int n = 2 * wtime.length;
+		wtime = Arrays.copyOf(wtime, n);
+		count = Arrays.copyOf(count, n);
+		min = Arrays.copyOf(min, n);
+		max = Arrays.copyOf(max, n);
+		sum = Arrays.copyOf(sum, n);
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// columnar results
+
+	/**
+	 * number of windows with data
+	 * @return window count
+	 */
+	public int size() 					{ return nwin; }
+
+	/**
+	 * window size
+	 * @return window (sec)
+	 */
+	public double getWindow() 			{ return window; }
+
+	/**
+	 * window start times
+	 * @return time per window (sec)
+	 */
+	public double[] getTime() 			{ return Arrays.copyOf(wtime, nwin); }
+
+	/**
+	 * number of points per window
+	 * @return count per window
+	 */
+	public long[] getCount() 			{ return Arrays.copyOf(count, nwin); }
+
+	/**
+	 * minimum value per window
+	 * @return min per window
+	 */
+	public double[] getMin() 			{ return Arrays.copyOf(min, nwin); }
+
+	/**
+	 * maximum value per window
+	 * @return max per window
+	 */
+	public double[] getMax() 			{ return Arrays.copyOf(max, nwin); }
+
+	/**
+	 * sum of values per window
+	 * @return sum per window
+	 */
+	public double[] getSum() 			{ return Arrays.copyOf(sum, nwin); }
+
+	/**
+	 * mean value per window
+	 * @return mean per window
+	 */
+	public double[] getMean() {
+		double[] mean = new double[nwin];
+		for(int i=0; i<nwin; i++) mean[i] = sum[i] / count[i];
+		return mean;
+	}
+}
@@ -0,0 +1,79 @@
+/*
+Copyright 2026 agent
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package cycronix.ctlib;
+
+import java.util.Collection;
+
+/**
+ * CloudTurbine utility class:  compact channel-name bloom filter for a zip block.
+ * About 10 bits per channel with 3 probes (about 2% false positives), no false negatives.
+ * Lets a channel query skip blocks without opening (or mapping) their zip files.
+ * <p>
+ * @author agent
+ * @version 2026/10/19
+ *
+*/
+
+class CTbloom {
+
+	private static final int NPROBE = 3;
+
+	private CTbloom() {}
+
+	/**
+	 * Build bloom filter of channel names
+	 * @param chans channel names
+	 * @return filter bits
+	 */
+	static long[] create(Collection<String> chans) {
+		int nbits = 64;
+		while(nbits < 10*chans.size()) nbits *= 2;			// power of 2
+		long[] bits = new long[nbits/64];
+		for(String c:chans) {
+			int h1 = c.hashCode(), h2 = mix(h1);
+			for(int k=0; k<NPROBE; k++) {
+				int b = (h1 + k*h2) & (nbits-1);
+				bits[b>>>6] |= (1L << b);
+			}
+		}
+		return bits;
+	}
+
+	/**
+	 * Check for channel name
+	 * @param bits filter bits
+	 * @param chan channel name
+	 * @return false if chan is not in filter, true if it may be
+	 */
+	static boolean mayContain(long[] bits, String chan) {
+		int nbits = 64*bits.length;
+		int h1 = chan.hashCode(), h2 = mix(h1);
+		for(int k=0; k<NPROBE; k++) {
+			int b = (h1 + k*h2) & (nbits-1);
+			if((bits[b>>>6] & (1L << b)) == 0) return false;
+		}
+		return true;
+	}
+
+	// second hash from first (odd, so probes differ)
+	private static int mix(int h) {
+		h ^= (h >>> 16);
+		h *= 0x85ebca6b;
+		h ^= (h >>> 13);
+		return h | 1;
+	}
+}
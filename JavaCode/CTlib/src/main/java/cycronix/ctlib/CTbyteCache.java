@@ -0,0 +1,270 @@
+/*
+Copyright 2026 agent
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package cycronix.ctlib;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CloudTurbine utility class:  byte-weighted, lock-striped cache of byte[] data.
+ * Entries are weighted by their length against a total memory budget, split evenly over the lock stripes;
+ * an entry bigger than a stripe's share may still be cached, at the expense of other stripes.
+ * A frequency sketch (TinyLFU) decides whether a new entry is worth evicting an old one,
+ * so a single long scan of cold data cannot flush frequently used entries.
+ * <p>
+ * @author agent
+ * @version 2026/10/19
+ *
+*/
+
+class CTbyteCache {
+
+	private static final int NSEGMENT = 16;					// number of lock stripes (power of 2)
+
+	private final Segment[] segments = new Segment[NSEGMENT];
+	private final FrequencySketch sketch = new FrequencySketch(4096);
+	private volatile long maxBytes;							// total memory budget (bytes)
+	private volatile int maxEntrySize;						// max size any individual entry
+	private final AtomicLong totalBytes = new AtomicLong();	// sum of segment bytes
+
+	// statistics
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong rejects = new AtomicLong();	// admission denied (or too big)
+
+	/**
+	 * Constructor
+	 * @param maxBytes total memory budget (bytes)
+	 * @param maxEntrySize max size any single entry (bytes)
+	 */
+	CTbyteCache(long maxBytes, int maxEntrySize) {
+		this.maxBytes = maxBytes;
+		this.maxEntrySize = maxEntrySize;
+		for(int i=0; i<NSEGMENT; i++) segments[i] = new Segment();
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// cache access
+
+	byte[] get(String key) {
+		int hash = spread(key.hashCode());
+		sketch.increment(hash);								// count hits and misses alike
+		Segment seg = segments[hash & (NSEGMENT-1)];
+		byte[] data;
+		synchronized(seg) {
+			data = seg.map.get(key);
+		}
+		if(data != null) 	hits.incrementAndGet();
+		else				misses.incrementAndGet();
+		return data;
+	}
+
+	void put(String key, byte[] data) {
+		if(key == null || data == null) return;
+		if(data.length > maxEntrySize || data.length > maxBytes) {	// never fits
+			rejects.incrementAndGet();
+			return;
+		}
+
+		int hash = spread(key.hashCode());
+		int iseg = hash & (NSEGMENT-1);
+		Segment seg = segments[iseg];
+		synchronized(seg) {
+			byte[] old = seg.map.remove(key);
+			if(old != null) addBytes(seg, -old.length);		// replace in place
+
+			// victims to make room in segment (eldest first).  an entry bigger than the segment share
+			// may take the whole segment;  it then overruns the share, and other segments are trimmed below.
+			long segBudget = maxBytes / NSEGMENT;
+			ArrayList<String> victims = new ArrayList<String>();
+			long free = segBudget - seg.bytes;
+			int victimFreq = 0;
+			for(Map.Entry<String,byte[]> e:seg.map.entrySet()) {
+				if(free >= data.length) break;
+				victims.add(e.getKey());
+				victimFreq = Math.max(victimFreq, sketch.frequency(spread(e.getKey().hashCode())));
+				free += e.getValue().length;
+			}
+
+			// admit only if candidate is at least as popular as every entry it would evict
+			if(old == null && !victims.isEmpty() && victimFreq > sketch.frequency(hash)) {
+				rejects.incrementAndGet();
+				return;
+			}
+			for(String v:victims) {
+				addBytes(seg, -seg.map.remove(v).length);
+				evictions.incrementAndGet();
+			}
+			seg.map.put(key, data);
+			addBytes(seg, data.length);
+		}
+		if(totalBytes.get() > maxBytes) trim(iseg);
+	}
+
+	void remove(String key) {
+		Segment seg = segments[spread(key.hashCode()) & (NSEGMENT-1)];
+		synchronized(seg) {
+			byte[] old = seg.map.remove(key);
+			if(old != null) addBytes(seg, -old.length);
+		}
+	}
+
+	void clear() {
+		for(Segment seg:segments) {
+			synchronized(seg) {
+				seg.map.clear();
+				addBytes(seg, -seg.bytes);
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// configuration
+
+	void setMaxBytes(long bytes) {
+		maxBytes = bytes;
+		trim(-1);
+	}
+
+	// evict eldest entries down to total budget:  first from segments over their share, then any,
+	// sparing segment skip (holding a just-added entry)
+	private void trim(int skip) {
+		long segBudget = maxBytes / NSEGMENT;
+		for(int pass=0; pass<2; pass++) {
+			for(int i=0; i<NSEGMENT && totalBytes.get() > maxBytes; i++) {
+				if(i == skip) continue;
+				Segment seg = segments[i];
+				synchronized(seg) {
+					long floor = (pass==0) ? segBudget : 0;
+					Iterator<Map.Entry<String,byte[]>> itr = seg.map.entrySet().iterator();
+					while(seg.bytes > floor && totalBytes.get() > maxBytes && itr.hasNext()) {
+						addBytes(seg, -itr.next().getValue().length);
+						itr.remove();
+						evictions.incrementAndGet();
+					}
+				}
+			}
+		}
+	}
+
+	private void addBytes(Segment seg, long n) {			// call holding seg lock
+		seg.bytes += n;
+		totalBytes.addAndGet(n);
+	}
+
+	long getMaxBytes() 					{ return maxBytes; }
+	void setMaxEntrySize(int size) 		{ maxEntrySize = size; }
+
+	//--------------------------------------------------------------------------------------------------------
+	// statistics
+
+	int size() {
+		int n = 0;
+		for(Segment seg:segments) synchronized(seg) { n += seg.map.size(); }
+		return n;
+	}
+
+	long bytes() {
+		long n = 0;
+		for(Segment seg:segments) synchronized(seg) { n += seg.bytes; }
+		return n;
+	}
+
+	long hitCount() 		{ return hits.get(); }
+	long missCount() 		{ return misses.get(); }
+	long evictionCount() 	{ return evictions.get(); }
+	long rejectCount() 		{ return rejects.get(); }
+
+	double hitRate() {
+		long h = hits.get(), m = misses.get();
+		return (h+m)==0 ? 0. : (double)h / (double)(h+m);
+	}
+
+	public String toString() {
+		return "entries: "+size()+", bytes: "+bytes()+"/"+maxBytes+", hits: "+hits.get()+", misses: "+misses.get()
+				+", evictions: "+evictions.get()+", rejects: "+rejects.get();
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// lock stripe:  access-ordered map plus its byte count
+
+	private static class Segment {
+		final LinkedHashMap<String,byte[]> map = new LinkedHashMap<String,byte[]>(16, 0.75f, true);
+		long bytes = 0;
+	}
+
+	private static int spread(int h) {						// mix up poor String hashes
+		h ^= (h >>> 16);
+		h *= 0x45d9f3b;
+		return h ^ (h >>> 16);
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// FrequencySketch:  count-min sketch of 4-bit popularity counters (16 per long) with periodic aging.
+	// counters are updated without locking; occasional lost updates only blur an estimate.
+
+	private static class FrequencySketch {
+		private static final long MAXCOUNT = 15;
+		private final long[] table;
+		private final int mask;								// counter index mask
+		private final int sampleSize;
+		private int additions = 0;
+
+		FrequencySketch(int expectedEntries) {				// expectedEntries must be power of 2
+			table = new long[expectedEntries];				// 16 counters per expected entry
+			mask = (16 * expectedEntries) - 1;
+			sampleSize = 10 * expectedEntries;
+		}
+
+		void increment(int hash) {
+			boolean added = false;
+			for(int i=0; i<4; i++) {
+				int idx = index(hash, i);
+				int shift = (idx & 15) << 2;
+				long word = table[idx >>> 4];
+				if(((word >>> shift) & MAXCOUNT) < MAXCOUNT) {
+					table[idx >>> 4] = word + (1L << shift);
+					added = true;
+				}
+			}
+			if(added && ++additions >= sampleSize) reset();
+		}
+
+		int frequency(int hash) {
+			long freq = MAXCOUNT;
+			for(int i=0; i<4; i++) {
+				int idx = index(hash, i);
+				freq = Math.min(freq, (table[idx >>> 4] >>> ((idx & 15) << 2)) & MAXCOUNT);
+			}
+			return (int)freq;
+		}
+
+		private int index(int hash, int i) {
+			int h = hash * (0x9E3779B9 + 2*i + 1);		// different odd multiplier per row
+			return (h ^ (h >>> 15)) & mask;
+		}
+
+		private synchronized void reset() {				// age: halve all counts
+			for(int i=0; i<table.length; i++) table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+			additions = 0;
+		}
+	}
+}
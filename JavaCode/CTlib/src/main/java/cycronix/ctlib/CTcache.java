@@ -17,14 +17,13 @@ limitations under the License.
 package cycronix.ctlib;
 
 import java.io.File;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.zip.ZipFile;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * CloudTurbine utility class that provides caching storage and access functions
@@ -42,16 +41,14 @@ class CTcache {
 //	private byte[] myData=null;				// cache?
 //	static private TreeMap<String, byte[]> DataCache = new TreeMap<String, byte[]>();		// cache (need logic to cap size)
 	// cache limits, max entries, max filesize any entry, jvm size at which to dump old cache...
-	private static final int MAX_ENTRIES = 1000;			// limit total entries in data cache (was 100000)
 	private static final int MAX_FILESIZE = 20000000;		// 20MB.  max size any individual entry
 //	private static final int MAX_JVMSIZE = 2000000000;		// 200MB. max overall JVM memory use at which to dump old entries  (2GB?)
-	private static final double MAX_MEMUSE = 0.1;			// fraction available JVM memory to use before limiting cache (was 0.25) 
-	private static final int MAX_ZIPFILES = 1;				// max number open zip files  (was 100, 1 helps a lot on CThdf)
+	private static final double MAX_MEMUSE = 0.1;			// fraction available JVM memory to use before limiting cache (was 0.25); default DataCache budget
+	private static final int MAX_ZIPFILES = 16;				// max number open zip files  (was 1 under single cacheLock, now pooled)
 	private static final int MAX_ZIPMAPS = 1000;			// max number constructed ZipMaps (was 10000 @ moderate impact memuse)
 	private static final int MAX_CTFILES = 1000;			// max number cached CTFiles (was 10000)
+	private static final int MAX_BLOOMS = 100000;			// max number zip channel bloom filters (tens of bytes each)
 	
-	private static boolean cacheProfile = false;
-	public static Object cacheLock = new Object();
 	private String rootFolder = "";		
 	private String sourceName = "";
 
@@ -70,77 +67,50 @@ class CTcache {
 			}
 			);
 
-	// DataCache supplants OS/disk caching for full-file reads
-	static Map<String, byte[]> DataCache = Collections.synchronizedMap(
-			new LinkedHashMap<String, byte[]>() {
-				protected boolean removeEldestEntry(Map.Entry  eldest) {
-					Runtime runtime = Runtime.getRuntime();
-					long usedmem = runtime.totalMemory() - runtime.freeMemory();
-					long availableMem = runtime.maxMemory(); 
-					double usedMemFraction = (double)usedmem / (double)availableMem;
-//					System.err.println("DataCache stats, usedmem: "+usedmem+", size: "+size()+", availableMem: "+availableMem+", usedMemPerc: "+usedMemFraction);
-					boolean trimCache = (size() >  MAX_ENTRIES) || (usedMemFraction > MAX_MEMUSE);
-					//			 	System.err.println("trimCache: "+trimCache);
-					return trimCache;
+	// ChanBloomCache:  channel-name bloom filter per zip file, computed with its ZipMap.
+	// outlives ZipMapCache (much smaller) so channel queries can skip zips without re-opening them
+	static Map<String, long[]> ChanBloomCache = Collections.synchronizedMap(
+			new LinkedHashMap<String, long[]>() {
+				protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+					return size() > MAX_BLOOMS;
 				}
 			}
 			);
 
+	// DataCache supplants OS/disk caching for full-file reads.
+	// byte-weighted against a memory budget, with frequency-aware admission so big one-time reads can't flush hot entries
+	static CTbyteCache DataCache = new CTbyteCache((long)(MAX_MEMUSE * Runtime.getRuntime().maxMemory()), MAX_FILESIZE);
 
-	// ZipFileCache caches open zip files; these take significant overhead to open/close on each use
-	 static Map<String, ZipFile> ZipFileCache =  //Collections.synchronizedMap(
-			new LinkedHashMap<String, ZipFile>() {
-				protected boolean removeEldestEntry(Map.Entry<String, ZipFile>  eldest) {
-//					System.err.println("ZipFileCache size: "+size());
-
-					// explicitly loop through close and release entries (return true not reliable?)
-					if(size() > MAX_ZIPFILES) {
-						synchronized(cacheLock) {		// don't close while in use
-							for (Map.Entry<String, ZipFile> entry : ZipFileCache.entrySet()) {
-								try{ entry.getValue().close(); } catch(Exception e){};  	// explicit close
-								//			 			System.err.println("ZipFileCache remove key: "+entry.getKey());
-								ZipFileCache.remove(entry.getKey());						// explicit remove
-								if(size() <= MAX_ZIPFILES) break;
-							}
-						}
-						//	System.err.println("ZipFileCache >remove size: "+ZipFileCache.size()+", max_files: "+MAX_ZIPFILES);
-					}
-					return false;
-					//	            return ((size() >  MAX_FILES));
-				}
-			};
-//			);
-
-	// ZipFileCache getter
-	static synchronized ZipFile cachedZipFile(String myZipFile) throws Exception {
-		ZipFile thisZipFile = ZipFileCache.get(myZipFile);
-		if(thisZipFile == null) {
-//			System.err.println("OPEN ZIPFILE: "+myZipFile);
-			thisZipFile = new ZipFile(myZipFile);					// a new file is opened here!
-			ZipFileCache.put(myZipFile, thisZipFile);
-		}
-//		else
-//			CTinfo.debugPrint(cacheProfile,"ZipCache HIT: "+myZipFile);
+	/**
+	 * set DataCache memory budget
+	 * @param maxBytes max total bytes of cached file data
+	 */
+	static void setDataCacheSize(long maxBytes) {
+		DataCache.setMaxBytes(maxBytes);
+	}
 
-		return thisZipFile;
+	// ZipFilePool holds open zip files; these take significant overhead to open/close on each use.
+	// reference counted so readers of different zip files don't serialize, and in-use files aren't closed out from under them
+	static CTzipPool ZipFilePool = new CTzipPool(MAX_ZIPFILES);
+
+	/**
+	 * set max number of open zip files
+	 * @param maxOpen max open zip files
+	 */
+	static void setZipPoolSize(int maxOpen) {
+		ZipFilePool.setMaxOpen(maxOpen);
 	}
 	
 	//--------------------------------------------------------------------------------------------------------
 
 	// TO DO:  getter/setters/config/reset methods for each cache type
 	
-	Map<String, CTFile> CTFileCache = Collections.synchronizedMap(new LinkedHashMap<String, CTFile>() {
+	// count-limited only:  a JVM used-memory check here evicted on nearly every put once heap use passed MAX_MEMUSE
+	// (CTFiles are small;  DataCache is what holds memory, and it has its own budget)
+	Map<String, CTFile> CTFileCache = Collections.synchronizedMap(new LinkedHashMap<String, CTFile>(16, 0.75f, true) {
         @Override
 		protected boolean removeEldestEntry(Map.Entry<String,CTFile>  eldest) {
-			Runtime runtime = Runtime.getRuntime();
-			long usedmem = runtime.totalMemory() - runtime.freeMemory();
-			long availableMem = runtime.maxMemory(); 
-			double usedMemFraction = (double)usedmem / (double)availableMem;
-
-			boolean trimCache = (size() >  MAX_CTFILES) || (usedMemFraction > MAX_MEMUSE);
-//			System.err.println("CTFileCache stats, usedmem: "+usedmem+", size: "+this.size()+", availableMem: "+availableMem+", usedMemPerc: "+usedMemFraction+", trimCache: "+trimCache);
-			return trimCache;
-			
+			return size() >  MAX_CTFILES;
 		}
 	}
 	);
@@ -170,15 +140,40 @@ class CTcache {
 	//--------------------------------------------------------------------------------------------------------
 	// buildIndices:  custom walkFileTree but skipping over subfolders
 	
-	static 
 	private HashMap<String,ArrayList<TimeFolder>> fileListByChanA = new HashMap<String,ArrayList<TimeFolder>>();	// temp builder map, compact to fileListByChan... (ArrayList -> Array[])	
-	protected HashMap<String,TimeFolder[]> fileListByChan = new HashMap<String,TimeFolder[]>();				
+	protected ConcurrentHashMap<String,TimeFolder[]> fileListByChan = new ConcurrentHashMap<String,TimeFolder[]>();	// written under lock, read lock-free (entries replaced, not modified)
 //	static HashMap<String,CTFile[]> fileListByChan = new HashMap<String,CTFile[]>();				
 	
+	// channel catalog:  listChans results by source, kept until the set of index keys changes
+	private static final long LISTCHANS_UPDATE = 1000;		// msec, min interval between listChans index updates per source
+	private long chanVersion = 1;							// counts index channel additions/removals
+	private long catalogVersion = 0;						// chanVersion of chanCatalog
+	private HashMap<String,ArrayList<String>> chanCatalog = new HashMap<String,ArrayList<String>>();
+	private HashMap<String,Long> indexTime = new HashMap<String,Long>();		// last index update (msec) by source
+
 	// update indices past newest-known Index-time
 	synchronized
 	public void updateIndices(String sName) {
 		buildIndices(sName, sourceNewTime(sName));
+		indexTime.put(sName, System.currentTimeMillis());
+	}
+	
+	/**
+	 * Version of index channel lists, changes when channels are added to or trimmed from index
+	 * @return version number
+	 */
+	synchronized long getChanVersion() {
+		return chanVersion;
+	}
+
+	/**
+	 * Index size
+	 * @return {number of channels, number of index entries (channel files)}
+	 */
+	synchronized long[] indexSize() {
+		long entries = 0;
+		for(TimeFolder[] tf:fileListByChan.values()) entries += tf.length;
+		return new long[] { fileListByChan.size(), entries };
 	}
 	
 	//--------------------------------------------------------------------------------------------------------
@@ -186,7 +181,15 @@ class CTcache {
 	
 	synchronized  	 // don't let multi-threaded CTreaders collide
 	public void buildIndices(String sName, double endTime) {
-		
+		long startTime = System.nanoTime();
+		try {
+			indexSource(sName, endTime);
+		} finally {
+			CTstats.time((endTime == 0) ? CTstats.INDEX_BUILD : CTstats.INDEX_UPDATE, startTime);
+		}
+	}
+
+	private void indexSource(String sName, double endTime) {
 		sourceName = sName;		
 		CTFile ctsource = new CTFile(rootFolder + File.separator + sourceName);
 		CTFile[] listOfFolders = ctsource.listFiles(); 	// mjm 1/26/19: limit to source
@@ -218,6 +221,7 @@ class CTcache {
 			if(endTime == 0) {
 				TimeFolder[] TF = new TimeFolder[tsize];
 				for(int i=0; i<tsize; i++) TF[i] = tfs.get(i);
+				if(!fileListByChan.containsKey(c)) chanVersion++;		// new channel
 				fileListByChan.put(c, TF);
 //				fileListByChanA.put(c, null);					// free old memory as we construct new list
 			}
@@ -229,6 +233,7 @@ class CTcache {
 				TimeFolder[] TF = new TimeFolder[tsize+tsize2];
 				for(int i=0; i<tsize2; i++) TF[i] = tfc[i];
 				for(int i=0, j=tsize2; i<tsize; i++, j++) TF[j] = tfs.get(i); 		// append
+				if(tfc == null && !fileListByChan.containsKey(c)) chanVersion++;		// new channel
 				fileListByChan.put(c, TF);
 //				fileListByChanA.put(c, null);					// free old memory as we construct new list
 			}
@@ -304,6 +309,7 @@ class CTcache {
 					}
 					if(ichk == tf.length) { 	// all gone
 						itr.remove();
+						chanVersion++;
 //						System.err.println("POOF: "+key);
 					}
 					else {
@@ -414,13 +420,23 @@ class CTcache {
 	}
 	
 	//--------------------------------------------------------------------------------------------------------
+	// listChans:  from catalog unless index channels changed.  index update at most every LISTCHANS_UPDATE per source
+	synchronized
 	public ArrayList<String> listChans(String source) {
 		String src = source.replace(rootFolder + File.separator, "");
 
-		updateIndices(src);
+		Long itime = indexTime.get(src);
+		if(itime == null || (System.currentTimeMillis() - itime) > LISTCHANS_UPDATE) updateIndices(src);
 //		buildIndices(src, 0);  // full rebuild?
 
-		ArrayList<String> chanList = new ArrayList<String>();
+		if(catalogVersion != chanVersion) {
+			chanCatalog.clear();
+			catalogVersion = chanVersion;
+		}
+		ArrayList<String> chanList = chanCatalog.get(src);
+		if(chanList != null) return new ArrayList<String>(chanList);
+		
+		chanList = new ArrayList<String>();
 		
 		Iterator<Map.Entry<String, TimeFolder[]>> itr = fileListByChan.entrySet().iterator(); 
         
@@ -436,13 +452,16 @@ class CTcache {
              }
         } 
         
-        return chanList;
+        chanCatalog.put(src, chanList);
+        return new ArrayList<String>(chanList);
 	}
 	
 //--------------------------------------------------------------------------------------------------------
 //convert chan path to reliable key
 	public String chan2key(String chan) {
-		String key = chan.replace(rootFolder, "");				// strip leading rootFolder if present
+		String key = chan;
+		if(chan.equals(rootFolder) || chan.startsWith(rootFolder + File.separator))
+			key = chan.substring(rootFolder.length());			// strip leading rootFolder if present (only:  root may be part of a name)
 		key = key.replace(File.separator, "/");
 		key = key.replace("//", "/");
 		if(key.startsWith("/")) key = key.substring(1);
@@ -455,16 +474,27 @@ class CTcache {
 	// utility class to store time/folder pairs
 	// NOTE:  the size of this class has strong influence on size of CTFileCache for large CTdata archives
 
-	private String tmpdir = System.getProperty("java.io.tmpdir");			// for decode ref
-	
 	public TimeFolder newTimeFolder(CTFile file, double time) {
 		return new TimeFolder(file, time);
 	}
 	
+	// literal replace-all (String.replace compiles a regex per call on older JVMs)
+	private static String replace(String s, String from, String to) {
+		int i = s.indexOf(from);
+		if(i < 0 || from.length() == 0) return s;
+		StringBuilder sb = new StringBuilder(s.length());
+		int last = 0;
+		for(; i>=0; i=s.indexOf(from, last)) {
+			sb.append(s, last, i).append(to);
+			last = i + from.length();
+		}
+		return sb.append(s, last, s.length()).toString();
+	}
+	
 	public class TimeFolder implements Comparable<TimeFolder> {
-		private byte[] myPathBytes=null;
+		private final CTnode myPathNode;			// interned path:  rootFolder-relative, or zip-entry if zip
+		private final CTnode myZipNode;				// interned zip file (sans .zip), shared by its entries
 		private double folderTime;
-		private byte[] myZipFileBytes=null;
 		
 		public TimeFolder(CTFile file, double time) {
 			String myPath = file.getMyPath();
@@ -472,37 +502,29 @@ class CTcache {
 			String myZipFile = file.getMyZipFile();
 			if(myZipFile!=null) {
 //				String trimZip = myZipFile.replace(".zip",  "/");
-				String trimZip = myZipFile.replace(".zip",  File.separator);			// oops this was broke on Windows
-				myPath = myPath.replace(trimZip, "");			// shorten myPath (saves space)
-				myZipFile = myZipFile.replace(".zip",  "");
+				String trimZip = replace(myZipFile, ".zip",  File.separator);			// oops this was broke on Windows
+				myPath = replace(myPath, trimZip, "");			// shorten myPath (saves space)
+				myZipFile = replace(myZipFile, ".zip",  "");
 //				System.err.println("myZipFile: "+myZipFile+", rootFolder: "+rootFolder+", startswith: "+(myZipFile.startsWith(rootFolder)));
 				if(myZipFile.startsWith(rootFolder))
-					myZipFile = myZipFile.replace(rootFolder, "");	// stingy
+					myZipFile = replace(myZipFile, rootFolder, "");	// stingy
 			} 
-			else myPath = myPath.replace(rootFolder,  "");
+			else myPath = replace(myPath, rootFolder,  "");
 			
-			CTFileCache.put(myPath, file);			// stock up FileCache here?
-
-			myPathBytes = encodeUTF8(myPath);				// efficiently encode to class-storage
-			myZipFileBytes = encodeUTF8(myZipFile);
+			myPathNode = CTnode.of(myPath);				// shared nodes, no per-entry path copies
+			myZipNode = CTnode.of(myZipFile);
 //			System.err.println("Encode: myPath: "+myPath+", myZipFile; "+myZipFile);
 		};
 		
 		public CTFile getCTFile() {
-			String myPath = decodeUTF8(myPathBytes);
-			String myZipFile = decodeUTF8(myZipFileBytes);
+			String myPath = myPathNode.path();
+			String myZipFile = (myZipNode==null) ? null : myZipNode.path();
 //			System.err.println("Decode: myPath: "+myPath+", myZipFile; "+myZipFile);
 			
 			try {
 				CTFile ctfile=null;
 				if(myZipFile==null) ctfile = cachedCTFile(rootFolder + myPath, null);
-//				else				ctfile = cachedCTFile(myPath, rootFolder + myZipFile+".zip");
-				else	{
-					if(myZipFile.startsWith(tmpdir))
-						ctfile = cachedCTFile(myPath, myZipFile+".zip");			// if absolute path presume gzip/temp folder?
-					else
-						ctfile = cachedCTFile(myPath, rootFolder + myZipFile+".zip");
-				}
+				else				ctfile = cachedCTFile(myPath, rootFolder + myZipFile+".zip");		// (file.zip.gz read as file.zip)
 
 //				System.err.println("+++++++CTfile: "+ctfile);
 				return ctfile;
@@ -520,16 +542,5 @@ class CTcache {
 		public int compareTo(TimeFolder compareFile) {
 			return ((this.folderTime > compareFile.folderTime) ? 1 : -1);
 		}
-		
-		// convert to/from String to byte[] for compact cache memory use
-		private final Charset UTF8_CHARSET = Charset.forName("UTF-8");
-		String decodeUTF8(byte[] bytes) {
-			if(bytes==null) return null;
-		    return new String(bytes, UTF8_CHARSET);
-		}
-		byte[] encodeUTF8(String string) {
-			if(string==null) return null;
-		    return string.getBytes(UTF8_CHARSET);
-		}
 	}
 }
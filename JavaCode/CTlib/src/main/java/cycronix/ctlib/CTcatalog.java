@@ -0,0 +1,167 @@
+/*
+Copyright 2026 agent
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package cycronix.ctlib;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+
+/**
+ * CloudTurbine utility class:  source list catalog (see CTreader.listSources).
+ * The folders walked above sources (root and group folders) are watched (WatchService) during the walk;
+ * the list is kept until a folder is created or deleted in one of them, or MAX_AGE passes.
+ * Without filesystem notification (or too many folders) the list is kept for MAX_AGE_NOWATCH.
+ * The version number changes only when the list changes, for client revalidation.
+ * <p>
+ * @author agent
+ * @version 2026/10/19
+ *
+*/
+
+class CTcatalog {
+
+	private static final long MAX_AGE = 60000;				// msec, re-walk at least this often
+	private static final long MAX_AGE_NOWATCH = 5000;		// msec, without filesystem notification
+	private static final int MAX_WATCH = 1000;				// max watched folders
+
+	private String root = null;
+	private ArrayList<String> sources = null;
+	private long walkTime = 0;								// msec
+	private long version = 0;
+	private WatchService watchService = null;
+	private boolean watchOK = true;							// filesystem notification available (and not too many folders)
+	private final ArrayList<WatchKey> keys = new ArrayList<WatchKey>();
+
+	//--------------------------------------------------------------------------------------------------------
+	/**
+	 * Check catalog is current
+	 * @param rootFolder root folder of sources
+	 * @return true if sources (get) are valid
+	 */
+	synchronized boolean isValid(String rootFolder) {
+		if(sources == null || !rootFolder.equals(root)) return false;
+		long age = System.currentTimeMillis() - walkTime;
+		if(watchService == null) return age < MAX_AGE_NOWATCH;
+		if(age >= MAX_AGE) return false;
+		WatchKey key = watchService.poll();
+		if(key == null) return true;
+		while(key != null) {								// changed: drain events
+			key.pollEvents();
+			key.reset();
+			key = watchService.poll();
+		}
+		return false;
+	}
+
+	/**
+	 * Start walk of folders:  drop old watches
+	 */
+	synchronized void begin() {
+		for(WatchKey key:keys) key.cancel();
+		keys.clear();
+		if(watchService == null && watchOK) {
+			try {
+				watchService = FileSystems.getDefault().newWatchService();
+			} catch(Exception e) {
+				System.err.println("CTcatalog: no filesystem notification, listSources re-walk interval: "+MAX_AGE_NOWATCH+" ms");
+				watchOK = false;
+			}
+		}
+		if(watchService != null) while(watchService.poll() != null);		// stale events
+	}
+
+	/**
+	 * Watch folder during walk (before listing it)
+	 * @param dir folder
+	 * @return watch key, null if not watched
+	 */
+	synchronized WatchKey watch(Path dir) {
+		if(watchService == null) return null;
+		if(keys.size() >= MAX_WATCH) {						// too many, fall back to short max age (for good)
+			CTinfo.debugPrint("CTcatalog: more than "+MAX_WATCH+" folders, not watched");
+			close();
+			watchOK = false;
+			return null;
+		}
+		try {
+			WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+			keys.add(key);
+			return key;
+		} catch(Exception e) {
+			CTinfo.debugPrint("CTcatalog watch error: "+dir+", "+e);
+			return null;
+		}
+	}
+
+	/**
+	 * Stop watching folder (e.g. found to be a source)
+	 * @param key watch key (from watch)
+	 */
+	synchronized void unwatch(WatchKey key) {
+		if(key == null) return;
+		key.cancel();
+		keys.remove(key);
+	}
+
+	/**
+	 * End walk of folders:  set sources
+	 * @param rootFolder root folder of sources
+	 * @param slist list of sources
+	 */
+	synchronized void end(String rootFolder, ArrayList<String> slist) {
+		if(!rootFolder.equals(root) || !slist.equals(sources)) version++;
+		root = rootFolder;
+		sources = new ArrayList<String>(slist);
+		walkTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Get sources (copy)
+	 * @return list of sources
+	 */
+	synchronized ArrayList<String> get() {
+		return new ArrayList<String>(sources);
+	}
+
+	/**
+	 * Version of source list
+	 * @return version number, changes when source list changes
+	 */
+	synchronized long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Forget sources (re-walk on next listSources)
+	 */
+	synchronized void clear() {
+		sources = null;
+	}
+
+	/**
+	 * Stop notification, release WatchService (CTreader.close).  A later walk watches again, unless too many folders.
+	 */
+	synchronized void close() {
+		for(WatchKey key:keys) key.cancel();
+		keys.clear();
+		if(watchService != null) try { watchService.close(); } catch(Exception e) {}
+		watchService = null;
+	}
+}
@@ -48,6 +48,12 @@ public class CTcrypto {
 	private Key secretKey;
 	private boolean optionalDecrypt = false;
 	
+	// Cipher per thread:  getInstance is costly, a Cipher is not thread-safe.  re-init per message (fresh IV)
+	private final ThreadLocal<Cipher> ciphers = new ThreadLocal<Cipher>();
+	
+	// optional decrypted-data cache (holds plaintext in memory:  opt-in, per key so readers with other passwords can't see it)
+	private volatile CTbyteCache plainCache = null;
+	
 	// constructor:  create key by hashing password
 	CTcrypto(String password, boolean optional) throws Exception {
 		optionalDecrypt = optional;
@@ -64,7 +70,7 @@ public class CTcrypto {
 	
 	// encrypt
 	byte[] encrypt(byte[] src) throws Exception {
-		Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");			// GCM authenticates
+		Cipher cipher = cipher();											// GCM authenticates
 		cipher.init(Cipher.ENCRYPT_MODE, secretKey);
 		
 		byte[] cipherText = cipher.doFinal(src);							// encrypt
@@ -89,7 +95,7 @@ public class CTcrypto {
 			else 	throw new IllegalArgumentException();
 		}		
 
-		Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");	
+		Cipher cipher = cipher();	
 		GCMParameterSpec params = new GCMParameterSpec(8*GCM_TAG_LENGTH, message, 0, GCM_NONCE_LENGTH);
 
 		cipher.init(Cipher.DECRYPT_MODE, secretKey, params);
@@ -104,5 +110,68 @@ public class CTcrypto {
 			else throw e;
 		}
 	}
+	
+	private Cipher cipher() throws Exception {
+		Cipher cipher = ciphers.get();
+		if(cipher == null) {
+			cipher = Cipher.getInstance("AES/GCM/NoPadding");
+			ciphers.set(cipher);
+		}
+		return cipher;
+	}
 
+	//--------------------------------------------------------------------------------------------------------
+	// decrypted-data cache
+	
+	/**
+	 * Set decrypted-data cache size.  Off (0) by default:  cached data is plaintext in memory.
+	 * @param maxBytes memory budget (bytes), 0 for no cache
+	 */
+	void setPlainCacheSize(long maxBytes) {
+		if(maxBytes <= 0) 			plainCache = null;
+		else if(plainCache == null) plainCache = new CTbyteCache(maxBytes, Integer.MAX_VALUE);	// entries limited by budget
+		else						plainCache.setMaxBytes(maxBytes);
+	}
+	
+	/**
+	 * Get cached decrypted data
+	 * @param key file key (path)
+	 * @return plaintext, null if not cached (or no cache)
+	 */
+	byte[] getPlain(String key) {
+		CTbyteCache pc = plainCache;
+		return (pc == null) ? null : pc.get(key);
+	}
+	
+	/**
+	 * Cache decrypted data (if cache on)
+	 * @param key file key (path)
+	 * @param data plaintext
+	 */
+	void putPlain(String key, byte[] data) {
+		CTbyteCache pc = plainCache;
+		if(pc != null) pc.put(key, data);
+	}
+	
+	/**
+	 * Clear decrypted-data cache
+	 */
+	void clearPlain() {
+		CTbyteCache pc = plainCache;
+		if(pc != null) pc.clear();
+	}
+	
+	/**
+	 * Decrypted-data cache statistics
+	 * @return summary, null if no cache
+	 */
+	String plainCacheStats() {
+		CTbyteCache pc = plainCache;
+		return (pc == null) ? null : pc.toString();
+	}
+
+	// decrypted-data cache, null if none
+	CTbyteCache plainCache() {
+		return plainCache;
+	}
 }
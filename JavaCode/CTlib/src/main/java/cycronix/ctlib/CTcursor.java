@@ -0,0 +1,201 @@
+/*
+Copyright 2026 agent
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package cycronix.ctlib;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import cycronix.ctlib.CTcache.TimeFolder;
+
+/**
+ * CloudTurbine utility class:  streaming cursor over one channel's data in a time range.
+ * Each next() returns a CTdata chunk holding the points of one zip file (or folder) of blocks.
+ * Chunks are read on demand while the following chunk is prefetched in the background,
+ * so at most two chunks are held in memory regardless of time span.
+ * <p>
+ * Get a cursor from CTreader.cursor(source, chan, t0, t1).
+ * <p>
+ * @author agent
+ * @version 2026/10/19
+ *
+*/
+
+public class CTcursor implements Iterator<CTdata>, Closeable {
+
+	private final CTreader ctreader;
+	private final String chan;
+	private final TimeFolder[] listOfFiles;			// index snapshot
+	private final int istart;						// first index entry (at-or-before start)
+	private final double start, end;				// time range (sec)
+
+	private volatile int inext;						// next index entry to read (advanced by prefetch)
+	private boolean prefetch = true;
+	private Future<CTdata> pending = null;			// chunk being read in background
+	private CTdata chunk = null;						// current chunk, not yet (fully) returned
+	private int ichunk = 0;							// next frame of chunk to return
+
+	/**
+	 * Constructor (see CTreader.cursor)
+	 */
+	CTcursor(CTreader ctreader, String chan, TimeFolder[] listOfFiles, int istart, double start, double end) {
+		this.ctreader = ctreader;
+		this.chan = chan;
+		this.listOfFiles = listOfFiles;
+		this.istart = Math.max(0, istart);
+		this.start = start;
+		this.end = end;
+		inext = (listOfFiles.length==0 || end < start) ? listOfFiles.length : this.istart;
+	}
+
+	/**
+	 * Set background prefetch of next chunk
+	 * @param pflag true to prefetch (default)
+	 */
+	public void setPrefetch(boolean pflag) {
+		prefetch = pflag;
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// Iterator
+
+	/**
+	 * Check for more data
+	 * @return true if next() has data
+	 */
+	public boolean hasNext() {
+		if(chunk != null && ichunk < chunk.size()) return true;
+		chunk = take();
+		ichunk = 0;
+		return chunk != null;
+	}
+
+	/**
+	 * Get next chunk of data
+	 * @return CTdata chunk (one zip file or folder worth of points)
+	 */
+	public CTdata next() {
+		if(!hasNext()) throw new NoSuchElementException();
+		CTdata ctd = (ichunk==0) ? chunk : chunk.subset(ichunk, chunk.size());		// remainder of partly used chunk
+		chunk = null;
+		return ctd;
+	}
+
+	/**
+	 * Get next data up to (not including) a time, spanning chunks as needed.  e.g. to re-block data by time.
+	 * @param tend end time (sec)
+	 * @return CTdata with all remaining points before tend (may be empty)
+	 */
+	public CTdata next(double tend) {
+		CTdata ctd = new CTdata();
+		while(hasNext()) {
+			int n = chunk.size();
+			int i = ichunk;
+			while(i < n && chunk.time(i) < tend) i++;
+			if(i > ichunk) ctd.add(chunk.subset(ichunk, i));
+			ichunk = i;
+			if(i < n) break;										// rest of chunk is past tend
+		}
+		return ctd;
+	}
+
+	/**
+	 * not supported
+	 */
+	public void remove() {
+		throw new UnsupportedOperationException("CTcursor is read-only");
+	}
+
+	/**
+	 * Stop cursor, cancel any prefetch
+	 */
+	public void close() {
+		if(pending != null) pending.cancel(false);
+		pending = null;
+		chunk = null;
+		inext = listOfFiles.length;
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// take:  next non-empty chunk (from prefetch if running), then start prefetch of the one after
+
+	private CTdata take() {
+		CTdata ctd;
+		if(pending != null) {
+			Future<CTdata> f = pending;
+			pending = null;
+			try {
+				ctd = f.get();
+			} catch(ExecutionException e) {
+				throw new RuntimeException("CTcursor read error, chan: "+chan, e.getCause());
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("CTcursor interrupted, chan: "+chan, e);
+			}
+		}
+		else {
+			try {
+				ctd = readNext();
+			} catch(Exception e) {
+				throw new RuntimeException("CTcursor read error, chan: "+chan, e);
+			}
+		}
+
+		if(ctd != null && prefetch && !done()) {
+			pending = CTreader.fetchExecutor().submit(new Callable<CTdata>() {
+				public CTdata call() throws Exception {
+					return readNext();
+				}
+			});
+		}
+		return ctd;
+	}
+
+	// readNext:  read chunks until one has data in range.  one at a time (caller or prefetch)
+	private CTdata readNext() throws Exception {
+		while(!done()) {
+			int ifirst = inext;
+			int ilast = ifirst;
+			String parent = parent(ifirst);
+			while(!done(ilast+1) && parent!=null && parent.equals(parent(ilast+1))) ilast++;	// blocks of same zip/folder
+			inext = ilast + 1;
+
+			CTdata ctd = ctreader.readChunk(chan, listOfFiles, istart, ifirst, ilast, start, end);
+			CTinfo.debugPrint("CTcursor chunk: "+chan+", entries: "+ifirst+"-"+ilast+", points: "+((ctd==null)?0:ctd.size()));
+			if(ctd != null && ctd.size() > 0) return ctd;
+		}
+		return null;
+	}
+
+	private boolean done() {
+		return done(inext);
+	}
+
+	// same end test as CTreader.addChanToDataMap (include one entry past end time)
+	private boolean done(int i) {
+		if(i >= listOfFiles.length) return true;
+		return (i > 1 && listOfFiles[i-1].getTime() > end);
+	}
+
+	private String parent(int i) {
+		CTFile file = listOfFiles[i].getCTFile();
+		return (file==null) ? null : file.getParent();
+	}
+}
@@ -18,12 +18,17 @@ package cycronix.ctlib;
 
 //---------------------------------------------------------------------------------	
 
-import java.io.ByteArrayOutputStream;
-
 // Matt Miller, Cycronix
 // 02/18/2014
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 
@@ -36,12 +41,16 @@ import java.util.Arrays;
 */
 
 //-----------------------------------------------------------------------------------------------------------------------------
-// CTdata:  ArrayList of time,data couples
+// CTdata:  list of time,data couples
+// times are a primitive column;  data are kept as segments of (shared) backing byte arrays with frame offsets,
+// so expanding a packed block into words references the block bytes rather than copying each word
 
 public class CTdata {
-	private ArrayList<Double>timelist=new ArrayList<Double>();
-	private ArrayList<byte[]>datalist=new ArrayList<byte[]>();
-	private ArrayList<CTFile>filelist=new ArrayList<CTFile>();
+	private double[] times = new double[16];		// time column, one per frame
+	private int ntime = 0;							// number of frames
+	private ArrayList<Segment> segments = new ArrayList<Segment>();		// data for frames, in frame order
+	private double[] numbers = null;				// parsed numeric-CSV values, valid while nnumber==ntime
+	private int nnumber = 0;
 
 	private java.nio.ByteOrder border = java.nio.ByteOrder.LITTLE_ENDIAN;	// Intel order (default, most common)
 		
@@ -91,8 +100,7 @@ public class CTdata {
 	 */
 	// add byte array
 	void add(double mytime, byte[] mydata) {
-		timelist.add(mytime);
-		datalist.add(mydata);
+		add(mytime, mydata, null);
 	}
 	
 	/**
@@ -104,37 +112,169 @@ public class CTdata {
 	// add byte array
 	void add(double mytime, byte[] mydata, CTFile file) {
 //		if(mydata==null) return;		// firewall
-		timelist.add(mytime);
-		datalist.add(mydata);
-		filelist.add(file);
+		add(mytime, mydata, 0, (mydata==null)?0:mydata.length, file);
+	}
+	
+	/**
+	 * add range of byte array (by reference, no copy)
+	 * @param mytime time (sec)
+	 * @param buf backing data array
+	 * @param off offset of data in buf
+	 * @param len number of bytes
+	 * @param file CTfile ref (may be null)
+	 */
+	void add(double mytime, byte[] buf, int off, int len, CTFile file) {
+		if(ntime == times.length) times = Arrays.copyOf(times, 2*ntime);
+		times[ntime] = mytime;
+
+		Segment last = segments.isEmpty() ? null : segments.get(segments.size()-1);
+		if(last!=null && last.buf==buf && last.file==file && last.len==len && off==(last.off + last.count*last.len)) 
+			last.count++;									// next word of same block (or time-only point), extend segment
+		else
+			segments.add(new Segment(buf, off, len, file, ntime, 1));
+		ntime++;
 	}
 	
 	// add CTFile (unfinished, for delayed data-read concept)
 	void add(double mytime, CTFile myfile) {
-		timelist.add(mytime);
-		filelist.add(myfile);
+		add(mytime, null, 0, 0, myfile);
 	}
 	
 	void add(CTdata tdata) {		// append 
-		timelist.addAll(tdata.timelist);
-		datalist.addAll(tdata.datalist);
-		filelist.addAll(tdata.filelist);
+		if(tdata == null) return;
+		int base = ntime;
+		if(nnumber == ntime && tdata.nnumber == tdata.ntime && tdata.ntime > 0) {		// keep parsed values
+			numbers = growNumbers(numbers, nnumber + tdata.nnumber);
+			System.arraycopy(tdata.numbers, 0, numbers, nnumber, tdata.nnumber);
+			nnumber += tdata.nnumber;
+		}
+		if(ntime + tdata.ntime > times.length) times = Arrays.copyOf(times, Math.max(2*times.length, ntime+tdata.ntime));
+		System.arraycopy(tdata.times, 0, times, ntime, tdata.ntime);
+		ntime += tdata.ntime;
+		for(Segment seg:tdata.segments) 
+			segments.add(new Segment(seg.buf, seg.off, seg.len, seg.file, base+seg.first, seg.count));
 	}
 	
 	/**
-	 * getter for datalist.size
+	 * getter for number of frames
 	 * @return size
 	 */
-	public int size() {	return datalist.size(); }
+	public int size() {	return ntime; }
 	
 	/**
 	 * getter for times
 	 * @return double[] array of times
 	 */
 	public double[] getTime() { 
-		double mytime[] = new double[timelist.size()];
-		for(int i=0; i< mytime.length; i++) mytime[i] = timelist.get(i);
-		return mytime;
+		return Arrays.copyOf(times, ntime);
+	}
+	
+	//-----------------------------------------------------------------------------------------------------------------------------
+	// Segment:  run of equal-length frames stored back to back in one byte array (e.g. the words of one packed block)
+	
+	private static class Segment {
+		final byte[] buf;				// null for time-only frames
+		final int off;					// offset of first frame in buf
+		final int len;					// bytes per frame (time-only:  size of unread data, for word count)
+		final CTFile file;				// source file (may be null)
+		final int first;				// index of first frame
+		int count;						// number of frames
+
+		Segment(byte[] buf, int off, int len, CTFile file, int first, int count) {
+			this.buf = buf;
+			this.off = off;
+			this.len = len;
+			this.file = file;
+			this.first = first;
+			this.count = count;
+		}
+	}
+	
+	// segment holding frame i (binary search)
+	private Segment segment(int i) {
+		int lo = 0, hi = segments.size()-1;
+		while(lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if(segments.get(mid).first <= i) lo = mid;
+			else							 hi = mid - 1;
+		}
+		return segments.get(lo);
+	}
+	
+	// frame i data as its own byte[] (no copy if frame is an entire backing array)
+	private byte[] frame(int i) {
+		Segment seg = segment(i);
+		if(seg.buf == null) return null;
+		int off = seg.off + (i-seg.first)*seg.len;
+		if(off==0 && seg.len==seg.buf.length) return seg.buf;
+		return Arrays.copyOfRange(seg.buf, off, off+seg.len);
+	}
+	
+	private CTFile file(int i) {
+		return segment(i).file;
+	}
+	
+	// append frame i to ctd at given time, by reference
+	private void addFrame(CTdata ctd, int i, double time) {
+		Segment seg = segment(i);
+		ctd.add(time, seg.buf, seg.off + (i-seg.first)*seg.len, seg.len, null);
+	}
+	
+	// time of frame i
+	double time(int i) {
+		return times[i];
+	}
+	
+	// frames [from,to) as new CTdata, by reference
+	CTdata subset(int from, int to) {
+		CTdata ctd = new CTdata();
+		ctd.border = border;
+		for(int i=from; i<to; i++) addFrame(ctd, i, times[i]);
+		if(nnumber == ntime && to > from) {
+			ctd.numbers = Arrays.copyOfRange(numbers, from, to);
+			ctd.nnumber = to - from;
+		}
+		return ctd;
+	}
+	
+	// add numeric-CSV word by reference, with its value parsed from the bytes.
+	// a malformed word is added as-is, and the values are then parsed (or fail) on get as before
+	private void addNumber(double mytime, byte[] buf, int off, int len) {
+		boolean valid = (nnumber == ntime);
+		add(mytime, buf, off, len, null);
+		if(!valid) return;
+		double value;
+		try { value = parseNumber(buf, off, len); } 
+		catch(NumberFormatException e) { return; }
+		numbers = growNumbers(numbers, nnumber+1);
+		numbers[nnumber++] = value;
+	}
+	
+	private static double[] growNumbers(double[] d, int n) {
+		if(d == null) return new double[Math.max(16, n)];
+		if(n <= d.length) return d;
+		return Arrays.copyOf(d, Math.max(2*d.length, n));
+	}
+	
+	// contiguous runs of whole words, in order, as ByteBuffers positioned on the data
+	private ArrayList<ByteBuffer> wordRuns(int wordSize) {
+		ArrayList<ByteBuffer> runs = new ArrayList<ByteBuffer>(segments.size());
+		for(Segment seg:segments) {
+			if(seg.buf == null || seg.len < wordSize) continue;
+			if(seg.len % wordSize == 0) 
+				runs.add(ByteBuffer.wrap(seg.buf, seg.off, seg.count*seg.len).order(border));
+			else {										// partial trailing word per frame, skip it
+				int nbyte = (seg.len / wordSize) * wordSize;
+				for(int f=0; f<seg.count; f++) runs.add(ByteBuffer.wrap(seg.buf, seg.off + f*seg.len, nbyte).order(border));
+			}
+		}
+		return runs;
+	}
+	
+	private static int countWords(ArrayList<ByteBuffer> runs, int wordSize) {
+		int count = 0;
+		for(ByteBuffer bb:runs) count += bb.remaining() / wordSize;
+		return count;
 	}
 	
 //-----------------------------------------------------------------------------------------------------------------------------
@@ -169,25 +309,36 @@ public class CTdata {
 	//			- generalize extract String[] vs  byte[] chunks
 	//			- incTimeI is defunct?
 	
+	// values are scanned from the frame bytes in place:  each value is added by reference to its bytes, 
+	// with its parsed value, and its point time assigned in the same pass
+	
 	CTdata timeRangeNumeric(double start, double duration, String tmode) { 
 		// Note:  start, duration is requested time, versus timelist being actual available time
 
 		double tend = start + duration;		// for ref
 		CTdata ctd = new CTdata();
-		int nframe = datalist.size();
+		int nframe = ntime;
 		
 //		System.err.println("timeRangeNumeric, requested tstart: "+start+", requested duration: "+duration+", tend: "+tend);
-		double Tprev=0;	String Dprev="";		// for duration=0 previous-Point
+		double Tprev=0;								// for duration=0 previous-Point
+		byte[] Pbuf=EMPTY;	int Poff=0, Plen=0;		// previous value bytes
 		
 		for(int i=0; i<nframe; i++) {
-			double tbase = filelist.get(i).baseTime();
-			double time = timelist.get(i);
+			double time = times[i];
+			Segment seg = segment(i);
+			CTFile file = seg.file;
+			double tbase = (file!=null) ? file.baseTime() : time;		// no file ref (e.g. already trimmed), treat as point
 			
-//			CTinfo.debugPrint("filelist.get("+i+"): "+filelist.get(i).getMyPath()+", tbase: "+tbase+", time: "+time);
+//			CTinfo.debugPrint("file("+i+"): "+file.getMyPath()+", tbase: "+tbase+", time: "+time);
 			
-			String dds = new String(datalist.get(i));				// CSV comma separated string of values
-			String[] ddp = dds.replaceFirst("^,","").split(",");	// skip leading comma if present
-			long count = ddp.length;
+			byte[] buf = (seg.buf!=null) ? seg.buf : EMPTY;				// CSV comma separated values
+			int off = (seg.buf!=null) ? (seg.off + (i-seg.first)*seg.len) : 0;
+			int end = (seg.buf!=null) ? (off + seg.len) : 0;
+			if(off<end && buf[off]==',') off++;							// skip leading comma if present
+			int last = end;
+			while(last>off && buf[last-1]==',') last--;					// trailing empty values dropped (as String.split)
+			long count = (last>off) ? 1 : ((end>off) ? 0 : 1);
+			for(int k=off; k<last; k++) if(buf[k]==',') count++;
 
 			double dt = 0;
 			if(count>1) {
@@ -197,26 +348,29 @@ public class CTdata {
 			}
 			
 			// not sure all the next/prev/oldest/newest logic is in here...
-			CTinfo.debugPrint("time("+i+"): "+time+", data: "+dds+", dt: "+dt+", count: "+count+", duration: "+duration);
+			CTinfo.debugPrint("time("+i+"): "+time+", bytes: "+(end-off)+", dt: "+dt+", count: "+count+", duration: "+duration);
 
-			if(i==0) { Tprev = time; Dprev=ddp[0]; }	// initialize
+			int p = off;							// start of value j
 			for(int j=0; j<count; j++) {
+				int q = p;
+				while(q<last && buf[q]!=',') q++;	// end of value j
+				if(i==0 && j==0) { Tprev = time; Pbuf = buf; Poff = p; Plen = q-p; }	// initialize
+				
 				double t = time+j*dt;
 //				System.err.println("t["+j+"]: "+t+", tstart: "+start+", tend: "+tend);
 //				if((t>tend && duration==0)) {		// single-point case
 				if(duration==0 && ( (t>=tend || j==(count-1)) )) {		// single-point case (catch at-or-after)
-					ctd.add(Tprev, Dprev.getBytes());
-//					System.err.println("d=0 grab t: "+t+", ptime: "+Tprev+", d: "+Dprev+", j: "+j+", count: "+count);
+					ctd.addNumber(Tprev, Pbuf, Poff, Plen);
 				}
 				else if(t>=start && t<=tend) {		// trim to requested start+duration
 					double ptime = time+j*dt;
-					ctd.add(ptime, ddp[j].getBytes());
-//					System.err.println("grab t: "+t+", ptime: "+ptime+", d: "+ddp[j]+", date: "+new Date((long)(t*1000)));
+					ctd.addNumber(ptime, buf, p, q-p);
 				}
 				Tprev = t;				// save previous 
-				Dprev = ddp[j];
+				Pbuf = buf;		Poff = p;	Plen = q-p;
 				
 				if(t >= tend) break;
+				p = q + 1;
 			}
 			if(time >= tend) break;
 		}
@@ -226,6 +380,80 @@ public class CTdata {
 		return ctd;
 	}
 	
+	private static final byte[] EMPTY = new byte[0];
+	
+	//-----------------------------------------------------------------------------------------------------------------------------
+	// byte-level parse of CSV number words, without String conversion.  Same results as Double.parseDouble (Float.parseFloat):
+	// plain decimals with mantissa up to 2^53 (2^24) and power-of-ten up to 22 (10) are exact operands, so one multiply
+	// or divide is correctly rounded;  anything else (long mantissa, big exponent, NaN, hex, etc) uses the JDK parser.
+	
+	private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+	private static final float[] POW10F = { 1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f };
+	
+	static double parseNumber(byte[] b, int off, int len) {
+		double v = scanDecimal(b, off, len, false);
+		return Double.isNaN(v) ? Double.parseDouble(new String(b, off, len)) : v;
+	}
+	
+	static float parseNumberF32(byte[] b, int off, int len) {
+		double v = scanDecimal(b, off, len, true);
+		return Double.isNaN(v) ? Float.parseFloat(new String(b, off, len)) : (float)v;
+	}
+	
+	// fast-path value of plain decimal number, NaN if not eligible
+	private static double scanDecimal(byte[] b, int off, int len, boolean f32) {
+		int i = off, end = off + len;
+		while(i<end && (b[i]&0xff)<=' ') i++;							// trim whitespace (as String.trim)
+		while(end>i && (b[end-1]&0xff)<=' ') end--;
+		if(i == end) return Double.NaN;
+		
+		boolean neg = false;
+		if(b[i]=='-' || b[i]=='+') { neg = (b[i]=='-'); i++; }
+		long m = 0;
+		int ndigit = 0, exp = 0;
+		boolean any = false;
+		for(; i<end && b[i]>='0' && b[i]<='9'; i++) {			// integer part
+			int d = b[i] - '0';
+			if(m>0 || d>0) { if(++ndigit > 18) return Double.NaN;	m = 10*m + d; }
+			any = true;
+		}
+		if(i<end && b[i]=='.') {
+			for(i++; i<end && b[i]>='0' && b[i]<='9'; i++) {	// fraction part
+				int d = b[i] - '0';
+				if(m>0 || d>0) { if(++ndigit > 18) return Double.NaN;	m = 10*m + d; }
+				exp--;
+				any = true;
+			}
+		}
+		if(!any) return Double.NaN;
+		if(i<end && (b[i]=='e' || b[i]=='E')) {					// exponent
+			boolean eneg = false;
+			if(++i<end && (b[i]=='-' || b[i]=='+')) { eneg = (b[i]=='-'); i++; }
+			int e = 0;
+			boolean edigit = false;
+			for(; i<end && b[i]>='0' && b[i]<='9'; i++) {
+				if(e < 10000) e = 10*e + (b[i] - '0');
+				edigit = true;
+			}
+			if(!edigit) return Double.NaN;
+			exp += eneg ? -e : e;
+		}
+		if(i != end) return Double.NaN;							// trailing chars (e.g. type suffix)
+		
+		double v;
+		if(m == 0) 		v = 0.;
+		else if(f32) {
+			if(m > (1L<<24) || exp < -10 || exp > 10) return Double.NaN;
+			v = (exp < 0) ? ((float)m / POW10F[-exp]) : ((float)m * POW10F[exp]);
+		}
+		else {
+			if(m > (1L<<53) || exp < -22 || exp > 22) return Double.NaN;
+			v = (exp < 0) ? (m / POW10[-exp]) : (m * POW10[exp]);
+		}
+		return neg ? -v : v;
+	}
+	
 	//-----------------------------------------------------------------------------------------------------------------------------
 	// timeRange from binary data
 	CTdata timeRange(int wordSize, double incTimeI, double start, double duration, String tmode) { 
@@ -233,14 +461,14 @@ public class CTdata {
 		double incTime = incTimeI;
 		double prevtime=0;
 
-		if(tmode.equals("newest")) start = timelist.get(timelist.size()-1) - duration;		
-//		if(tmode.equals("oldest")) start = timelist.get(0);		// defer until find first point, may need to deduct block-duration 
+		if(tmode.equals("newest")) start = times[ntime-1] - duration;		
+//		if(tmode.equals("oldest")) start = times[0];		// defer until find first point, may need to deduct block-duration 
 		
 		double end = start + duration;		// presume absolute time provided
-		CTinfo.debugPrint("timeRange, start: "+start+", end: "+end+", duration: "+duration+", timelist(0): "+timelist.get(0)+", wordSize: "+wordSize+", timelist.size: "+timelist.size());
+		CTinfo.debugPrint("timeRange, start: "+start+", end: "+end+", duration: "+duration+", times(0): "+times[0]+", wordSize: "+wordSize+", times.size: "+ntime);
 	
 		if(start==0. || duration < 0.) end = Double.MAX_VALUE;		// use full range if relative timestamp 
-		int nframe = datalist.size();
+		int nframe = ntime;
 
 		boolean deduceIncTime=true;		// obsolete?  still used for audio.pcm, but audio plays, scrolling is glumpy...	
 		if(deduceIncTime && duration > 0.) {
@@ -250,19 +478,19 @@ public class CTdata {
 				int count=0;
 				prevtime = 0;
 				for(int i=0; i<(nframe-1); i++) {
-					double time = timelist.get(i);			// skip dupes
+					double time = times[i];			// skip dupes
 					if(time == prevtime) continue;
 					prevtime = time; 
-					if(datalist.get(i) != null)					// bleh
-						count += datalist.get(i).length;		// count all points (less last frame)
-					//				System.err.println("frame time["+i+"]: "+timelist.get(i));
+					Segment seg = segment(i);
+					count += seg.len;		// count all points (less last frame), time-only frames by unread size
+					//				System.err.println("frame time["+i+"]: "+times[i]);
 				}
 				count /= wordSize;
-				double timerange = timelist.get(nframe-1) - timelist.get(0);
+				double timerange = times[nframe-1] - times[0];
 				incTime =  timerange / count;	// avg all frames
-				//			System.err.println("timeRangeNM1: "+timelist.get(nframe-1)+", nframe: "+nframe+", incTime: "+incTime+", count: "+count+", timerange: "+timerange);
+				//			System.err.println("timeRangeNM1: "+times[nframe-1]+", nframe: "+nframe+", incTime: "+incTime+", count: "+count+", timerange: "+timerange);
 			}
-			if(wordSize>1 && incTime == 0. && filelist.size() < nframe) {		// can happen with single nframe==1 (bleh)
+			if(wordSize>1 && incTime == 0. && nframe>0 && file(nframe-1) == null) {		// can happen with single nframe==1 (bleh)
 				System.err.println("WARNING: cannot derive incremental point times, using constant over frame");
 			}	
 		}
@@ -271,7 +499,7 @@ public class CTdata {
 		String oldZipFile=null;
 //		if(duration==0) nframe = 1;			// cluge to get rid of double-returns?
 		
-		// step through elements of timelist, datalist Arrays
+		// step through elements of times, data frames
 
 		// optimize special case for single-point frames:
 		/* 		// mjm 8/14/2020: this code produces bad results for some cases, e.g. r=newest&d>0.  possible FP round off problem with end?
@@ -304,7 +532,7 @@ public class CTdata {
 		*/
 		
 		for(int i=0; i<nframe; i++) {					// multiple frames per arraylist element
-			double time = timelist.get(i);
+			double time = times[i];
 
 			if(time == prevtime) {
 				CTinfo.debugPrint("skipping dupe time: "+time);
@@ -312,11 +540,12 @@ public class CTdata {
 			}
 			
 			int count = 0;
-			try{ count = datalist.get(i).length/wordSize; } catch (Exception e) {};		// for timeonly, data could be nullptr
+			Segment seg = segment(i);
+			count = seg.len/wordSize;		// for timeonly, data is null (count from unread size)
 //			CTinfo.debugPrint("wordSize: "+wordSize+", duration: "+duration+", tmode: "+tmode+", i: "+i+", nframe: "+nframe+", time: "+time+", count: "+count);
 			CTinfo.debugPrint("frame: "+i+", tframe: "+time+", nframe: "+nframe+", start: "+start+", end: "+end+", count: "+count);
-//			double ts = timelist.get(0);
-//			double te = timelist.get(timelist.size()-1);
+//			double ts = times[0];
+//			double te = times[ntime-1];
 //			System.err.println("start: "+start+", end: "+end+", t0: "+ts+", te: "+te+", dts: "+(ts-start)+", dte: "+(end-te));
 //			if(ts >= start && te <= end) {
 //				System.err.println("easy trim!");
@@ -327,10 +556,10 @@ public class CTdata {
 				
 //				if(duration==0 && nframe==1) {		// special single-frame intact-frame case (e.g. images) MJM 8/16
 				if(duration==0 && tmode.equals("absolute")) {					// ensure d=0 gets at-or-BEFORE given time MJM 2/17
-					CTinfo.debugPrint("Zero duration check, i: "+i+", nframe: "+nframe+", time: "+time+", timelist.size: "+timelist.size());
-					if( (timelist.size()>(i+1)) && (i==(nframe-1) || (timelist.get(i+1)>start)) ) {
-						CTinfo.debugPrint("CTdata zero add, time: "+timelist.get(i)+", start: "+start+", timelist(i+1): "+timelist.get(i+1));
-						ctd.add(timelist.get(i), datalist.get(i));
+					CTinfo.debugPrint("Zero duration check, i: "+i+", nframe: "+nframe+", time: "+time+", times.size: "+ntime);
+					if( (ntime>(i+1)) && (i==(nframe-1) || (times[i+1]>start)) ) {
+						CTinfo.debugPrint("CTdata zero add, time: "+times[i]+", start: "+start+", times(i+1): "+times[i+1]);
+						addFrame(ctd, i, times[i]);
 						break;
 					}
 				}
@@ -344,23 +573,23 @@ public class CTdata {
 					CTinfo.debugPrint("duration 0, time: "+time+", start: "+start+", tmode: "+tmode+", i: "+i+", nframe: "+nframe);
 //					if(tmode.equals("next") && i<(nframe-1)) {
 					if(tmode.equals("next")) {
-						while((i<(nframe-1)) && time==timelist.get(i+1)) {
+						while((i<(nframe-1)) && time==times[i+1]) {
 							i++;		// roll past dupe times...
 						}
-						CTinfo.debugPrint("CTdata next add, time: "+timelist.get(i));
-//						ctd.add(timelist.get(i+1), datalist.get(i+1));		// index "i" is current point
-						if(time <= timelist.get(i) && i<(nframe-1)) i++;	// skootch to next
-						ctd.add(timelist.get(i), datalist.get(i));		// index "i" is current point
+						CTinfo.debugPrint("CTdata next add, time: "+times[i]);
+//						addFrame(ctd, i+1, times[i+1]);		// index "i" is current point
+						if(time <= times[i] && i<(nframe-1)) i++;	// skootch to next
+						addFrame(ctd, i, times[i]);		// index "i" is current point
 					}
 //					else if((i>0) && ((start!=time) || tmode.equals("prev")))
 					else if((i>0) && (tmode.equals("prev"))) {
-						CTinfo.debugPrint("CTdata prev add, time: "+timelist.get(i-1));
-						ctd.add(timelist.get(i-1), datalist.get(i-1));		// index "i-1" is at or one before start
+						CTinfo.debugPrint("CTdata prev add, time: "+times[i-1]);
+						addFrame(ctd, i-1, times[i-1]);		// index "i-1" is at or one before start
 					}
-					else if(start >= timelist.get(i)) {		// MJM 9/17/18:  bug fix: no get oldest if d=0 && t<oldest
+					else if(start >= times[i]) {		// MJM 9/17/18:  bug fix: no get oldest if d=0 && t<oldest
 //					else {
-						CTinfo.debugPrint("CTdata duration=0 add, time: "+timelist.get(i));
-						ctd.add(timelist.get(i), datalist.get(i));			// grab current if none prior or exact match
+						CTinfo.debugPrint("CTdata duration=0 add, time: "+times[i]);
+						addFrame(ctd, i, times[i]);			// grab current if none prior or exact match
 					}
 					break;
 				} 
@@ -370,17 +599,14 @@ public class CTdata {
 				if(time < start && duration>0) continue;	// mjm 9/28/2020: no point for interval past end of data
 				
 				CTinfo.debugPrint("CTdata frame add, time: "+time);
-				ctd.add(time, datalist.get(i));			// add current frame
+				addFrame(ctd, i, time);			// add current frame
 			}
 			else {			//  multi-point blocks
-				int waveHeader = filelist.get(i).getName().endsWith(".wav")?44:0;		// skip audio.wav header (44 bytes)
-				byte[] data = datalist.get(i);
-				count = 0;
-				if(data == null) {
-					ctd.add(time, (byte[]) null);			// time-only request
-					return ctd;
-				}
-				else count = (data.length-waveHeader)/wordSize;		// multiple words per frame
+				CTFile ifile = seg.file;
+				int waveHeader = (ifile!=null && ifile.getName().endsWith(".wav"))?44:0;		// skip audio.wav header (44 bytes)
+				byte[] data = seg.buf;									// frame is data[doff...doff+seg.len], words referenced not copied
+				int doff = seg.off + (i-seg.first)*seg.len;
+				count = (seg.len-waveHeader)/wordSize;			// multiple words per frame (data null for time-only)
 				double dt = 0.;
 				double refTime = 0.;
 				String thisZipFile=null;
@@ -388,8 +614,8 @@ public class CTdata {
 				// first block in zip, use dt = blockTime - zipFileTime
 				// subsequent blocks in zip, use dt = blockTime(i+1) - blockTime(i)
 				// if dt==0, fall back to old average interval calc (above)
-				if(wordSize>1 && filelist.size() >= nframe) {
-					CTFile file = filelist.get(i);
+				if(wordSize>1 && ifile != null) {
+					CTFile file = ifile;
 					thisZipFile = file.getParent();			// could be zip or folder
 					if(thisZipFile != null) {
 						if(thisZipFile.equals(oldZipFile)) 	refTime = prevtime;						// multi-block per Zip
@@ -404,12 +630,12 @@ public class CTdata {
 				}
 				
 				// grab sampleRate out of audio.wav header if available
-				if(waveHeader > 0) {						
+				if(waveHeader > 0 && data != null) {						
 					int offset = 24;									// Wave header sampleRate entry location
-					int value = (data[3+offset] << (Byte.SIZE * 3));
-					value |= (data[2+offset] & 0xFF) << (Byte.SIZE * 2);
-					value |= (data[1+offset] & 0xFF) << (Byte.SIZE * 1);
-					value |= (data[0+offset] & 0xFF);
+					int value = (data[doff+3+offset] << (Byte.SIZE * 3));
+					value |= (data[doff+2+offset] & 0xFF) << (Byte.SIZE * 2);
+					value |= (data[doff+1+offset] & 0xFF) << (Byte.SIZE * 1);
+					value |= (data[doff+0+offset] & 0xFF);
 					dt = 1. / value;
 					CTinfo.debugPrint("got WaveHeader! sampRate: "+value+", dt: "+dt+", totalcount: "+count);
 				}
@@ -419,7 +645,7 @@ public class CTdata {
 					CTinfo.debugPrint("CTdata, blockdata zero dt, using backup incTime: "+incTime+", count: "+count);
 				}
 				if(dt == 0. && count > 1) System.err.println("Warning, using constant time over data block!");	
-//				System.err.println("thisZip: "+thisZipFile+", time: "+time+", refTime: "+refTime+", prevTime: "+prevtime+", baseTime: "+filelist.get(i).baseTime());
+//				System.err.println("thisZip: "+thisZipFile+", time: "+time+", refTime: "+refTime+", prevTime: "+prevtime+", baseTime: "+ifile.baseTime());
 				time = refTime;		// MJM 7/28/16:  blocks start at 0-relative time for consistency with non-block times
 				
 				if(tmode.equals("oldest") && start==0) { start = time; end = start + duration; }
@@ -434,20 +660,25 @@ public class CTdata {
 					if(time < start) continue;
 					else if(time <= end) {
 						int idx = j + waveHeader/wordSize;
-						byte[] barray = Arrays.copyOfRange(data, idx*wordSize, (idx+1)*wordSize);	// parse bytes into words
-						ctd.add(time, barray);
+						if(data == null)	ctd.add(time, null, 0, 0, null);							// time-only
+						else				ctd.add(time, data, doff+idx*wordSize, wordSize, null);	// reference words in place (no copy)
 					}
 					else if((duration == 0) && (time > end)) {		// special at-or-before
 						int idx = j-1;
+						byte[] pdata = (data==null) ? null : Arrays.copyOfRange(data, doff, doff+seg.len);
 						if(j==0 && i>0) {
-							data = datalist.get(i-1);
+							pdata = frame(i-1);
 							idx = count-2;
 						}
 						if(idx < 0) idx=0;
 						else		time -= dt;
 
 						idx += waveHeader/wordSize;
-						byte[] barray = Arrays.copyOfRange(data, idx*wordSize, (idx+1)*wordSize);
+						if(pdata == null) {								// time-only
+							ctd.add(time, (byte[]) null);
+							break;
+						}
+						byte[] barray = Arrays.copyOfRange(pdata, idx*wordSize, (idx+1)*wordSize);
 						ctd.add(time, barray);
 						break;
 					}
@@ -471,16 +702,8 @@ public class CTdata {
 	 * @return array of data
 	 */
 	public double[] getDataAsFloat64() {
-		int nword = datalist.size();
-		int count = 0;
-		for(int i=0; i<nword; i++) count += (datalist.get(i).length / 8);	// pre-pass count total
-		double data[] = new double[count];
-		for(int i=0, k=0; i<nword; i++) {		// multiple words per arraylist element
-			count = datalist.get(i).length/8;
-			for(int j=0; j<count; j++, k++) {
-				data[k] = ByteBuffer.wrap(datalist.get(i), j*8, 8).order(border).getDouble();
-			}
-		}
+		double data[] = new double[wordCount(8)];
+		getDataAsFloat64(data, 0);
 		return data;
 	}
 	
@@ -489,16 +712,8 @@ public class CTdata {
 	 * @return array of data
 	 */
 	public float[] getDataAsFloat32() {
-		int nword = datalist.size();
-		int count = 0;
-		for(int i=0; i<nword; i++) count += (datalist.get(i).length / 4);	// pre-pass count total
-		float data[] = new float[count];
-		for(int i=0, k=0; i<nword; i++) {		// multiple words per arraylist element
-			count = datalist.get(i).length/4;
-			for(int j=0; j<count; j++, k++) {
-				data[k] = ByteBuffer.wrap(datalist.get(i), j*4, 4).order(border).getFloat();
-			}
-		}
+		float data[] = new float[wordCount(4)];
+		getDataAsFloat32(data, 0);
 		return data;
 	}
 	
@@ -507,16 +722,8 @@ public class CTdata {
 	 * @return array of data
 	 */
 	public long[] getDataAsInt64() {
-		int nword = datalist.size();
-		int count = 0;
-		for(int i=0; i<nword; i++) count += (datalist.get(i).length / 8);	// pre-pass count total
-		long data[] = new long[count];
-		for(int i=0, k=0; i<nword; i++) {		// multiple words per arraylist element
-			count = datalist.get(i).length/8;
-			for(int j=0; j<count; j++, k++) {
-				data[k] = ByteBuffer.wrap(datalist.get(i), j*8, 8).order(border).getLong();
-			}
-		}
+		long data[] = new long[wordCount(8)];
+		getDataAsInt64(data, 0);
 		return data;
 	}
 	
@@ -525,16 +732,8 @@ public class CTdata {
 	 * @return array of data
 	 */
 	public int[] getDataAsInt32() {
-		int nword = datalist.size();
-		int count = 0;
-		for(int i=0; i<nword; i++) count += (datalist.get(i).length / 4);	// pre-pass count total
-		int data[] = new int[count];
-		for(int i=0, k=0; i<nword; i++) {		// multiple words per arraylist element
-			count = datalist.get(i).length/4;
-			for(int j=0; j<count; j++, k++) {
-				data[k] = ByteBuffer.wrap(datalist.get(i), j*4, 4).order(border).getInt();
-			}
-		}
+		int data[] = new int[wordCount(4)];
+		getDataAsInt32(data, 0);
 		return data;
 	}
 	
@@ -543,29 +742,196 @@ public class CTdata {
 	 * @return array of data
 	 */
 	public short[] getDataAsInt16() {
-		int nword = datalist.size();
-		int count = 0;
-		for(int i=0; i<nword; i++) count += (datalist.get(i).length / 2);	// pre-pass count total
-		short data[] = new short[count];
-//		System.err.println("getDataAsInt16, nword: "+nword);
-		for(int i=0, k=0; i<nword; i++) {		// multiple words per arraylist element
-			count = datalist.get(i).length/2;
-			for(int j=0; j<count; j++, k++) {
-				data[k] = ByteBuffer.wrap(datalist.get(i), j*2, 2).order(border).getShort();
-			}
-		}
+		short data[] = new short[wordCount(2)];
+		getDataAsInt16(data, 0);
 		return data;
 	}
 	
+	//-----------------------------------------------------------------------------------------------------------------------------
+	// bulk conversion into caller arrays (reusable buffers).  each returns number of words written;
+	// dst must have room for wordCount(wordSize) words at offset
+	
+	/**
+	 * number of whole data words of given size
+	 * @param wordSize bytes per word
+	 * @return word count
+	 */
+	public int wordCount(int wordSize) {
+		return countWords(wordRuns(wordSize), wordSize);
+	}
+	
+	/**
+	 * get data into caller array
+	 * @param dst destination array
+	 * @param offset start index in dst
+	 * @return number of words
+	 */
+	public int getDataAsFloat64(double[] dst, int offset) {
+		int k = offset;
+		for(ByteBuffer bb:wordRuns(8)) {				// bulk convert each contiguous run
+			int n = bb.remaining() / 8;
+			bb.asDoubleBuffer().get(dst, k, n);
+			k += n;
+		}
+		return k - offset;
+	}
+	
+	/**
+	 * get data into caller array
+	 * @param dst destination array
+	 * @param offset start index in dst
+	 * @return number of words
+	 */
+	public int getDataAsFloat32(float[] dst, int offset) {
+		int k = offset;
+		for(ByteBuffer bb:wordRuns(4)) {
+			int n = bb.remaining() / 4;
+			bb.asFloatBuffer().get(dst, k, n);
+			k += n;
+		}
+		return k - offset;
+	}
+	
+	/**
+	 * get data into caller array
+	 * @param dst destination array
+	 * @param offset start index in dst
+	 * @return number of words
+	 */
+	public int getDataAsInt64(long[] dst, int offset) {
+		int k = offset;
+		for(ByteBuffer bb:wordRuns(8)) {
+			int n = bb.remaining() / 8;
+			bb.asLongBuffer().get(dst, k, n);
+			k += n;
+		}
+		return k - offset;
+	}
+	
+	/**
+	 * get data into caller array
+	 * @param dst destination array
+	 * @param offset start index in dst
+	 * @return number of words
+	 */
+	public int getDataAsInt32(int[] dst, int offset) {
+		int k = offset;
+		for(ByteBuffer bb:wordRuns(4)) {
+			int n = bb.remaining() / 4;
+			bb.asIntBuffer().get(dst, k, n);
+			k += n;
+		}
+		return k - offset;
+	}
+	
+	/**
+	 * get data into caller array
+	 * @param dst destination array
+	 * @param offset start index in dst
+	 * @return number of words
+	 */
+	public int getDataAsInt16(short[] dst, int offset) {
+		int k = offset;
+		for(ByteBuffer bb:wordRuns(2)) {
+			int n = bb.remaining() / 2;
+			bb.asShortBuffer().get(dst, k, n);
+			k += n;
+		}
+		return k - offset;
+	}
+	
+	//-----------------------------------------------------------------------------------------------------------------------------
+	// read-only typed views (byte order per setSwap).  zero-copy if data is one contiguous run (e.g. single block), 
+	// else words are gathered once into a new buffer
+	
+	/**
+	 * data as read-only ByteBuffer (all bytes, including partial words)
+	 * @return byte buffer view
+	 */
+	public ByteBuffer asByteBuffer() {
+		if(segments.size() == 1 && segments.get(0).buf != null) {
+			Segment seg = segments.get(0);
+			return ByteBuffer.wrap(seg.buf, seg.off, seg.count*seg.len).slice().asReadOnlyBuffer().order(border);
+		}
+		return ByteBuffer.wrap(getDataAsByteArray()).asReadOnlyBuffer().order(border);
+	}
+	
+	/**
+	 * data as read-only DoubleBuffer
+	 * @return double buffer view
+	 */
+	public DoubleBuffer asDoubleBuffer() 	{ return wordView(8).asDoubleBuffer(); }
+	
+	/**
+	 * data as read-only FloatBuffer
+	 * @return float buffer view
+	 */
+	public FloatBuffer asFloatBuffer() 		{ return wordView(4).asFloatBuffer(); }
+	
+	/**
+	 * data as read-only LongBuffer
+	 * @return long buffer view
+	 */
+	public LongBuffer asLongBuffer() 		{ return wordView(8).asLongBuffer(); }
+	
+	/**
+	 * data as read-only IntBuffer
+	 * @return int buffer view
+	 */
+	public IntBuffer asIntBuffer() 			{ return wordView(4).asIntBuffer(); }
+	
+	/**
+	 * data as read-only ShortBuffer
+	 * @return short buffer view
+	 */
+	public ShortBuffer asShortBuffer() 		{ return wordView(2).asShortBuffer(); }
+	
+	// whole words as one read-only byte buffer
+	private ByteBuffer wordView(int wordSize) {
+		ArrayList<ByteBuffer> runs = wordRuns(wordSize);
+		if(runs.size() == 1) return runs.get(0).slice().asReadOnlyBuffer().order(border);
+		
+		byte[] data = new byte[countWords(runs, wordSize) * wordSize];
+		int k = 0;
+		for(ByteBuffer bb:runs) {
+			int n = bb.remaining();
+			bb.get(data, k, n);
+			k += n;
+		}
+		return ByteBuffer.wrap(data).asReadOnlyBuffer().order(border);
+	}
+	
+	/**
+	 * total number of data bytes
+	 * @return byte count
+	 */
+	public int dataLength() {
+		int nbyte = 0;
+		for(Segment seg:segments) if(seg.buf!=null) nbyte += seg.count*seg.len;
+		return nbyte;
+	}
+	
+	/**
+	 * write all data bytes to stream, straight from backing (cached) arrays
+	 * @param out output stream
+	 * @throws IOException on write error
+	 */
+	public void writeData(OutputStream out) throws IOException {
+		for(Segment seg:segments) {
+			if(seg.buf != null) out.write(seg.buf, seg.off, seg.count*seg.len);
+		}
+	}
+	
 	/**
 	 *  getData as various primitive types
 	 * @return array of data
 	 */
 	public double[] getDataAsNumericF64() {
-		int nword = datalist.size();
-		double data[] = new double[nword];		// presume 1 word per arraylist
-		for(int i=0; i<nword; i++) {
-			data[i] = Double.parseDouble(new String(datalist.get(i)));
+		int nword = ntime;
+		if(nnumber == nword) return (nword==0) ? new double[0] : Arrays.copyOf(numbers, nword);		// parsed by timeRange
+		double data[] = new double[nword];		// presume 1 word per frame
+		for(Segment seg:segments) {
+			for(int f=0; f<seg.count; f++) data[seg.first+f] = parseNumber(seg.buf, seg.off + f*seg.len, seg.len);
 		}
 		return data;
 	}
@@ -575,10 +941,10 @@ public class CTdata {
 	 * @return array of data
 	 */
 	public float[] getDataAsNumericF32() {
-		int nword = datalist.size();
-		float data[] = new float[nword];		// presume 1 word per arraylist
-		for(int i=0; i<nword; i++) {
-			data[i] = Float.parseFloat(new String(datalist.get(i)));
+		int nword = ntime;
+		float data[] = new float[nword];		// presume 1 word per frame
+		for(Segment seg:segments) {
+			for(int f=0; f<seg.count; f++) data[seg.first+f] = parseNumberF32(seg.buf, seg.off + f*seg.len, seg.len);
 		}
 		return data;
 	}
@@ -588,15 +954,14 @@ public class CTdata {
 	 * @return array of data
 	 */
 	public byte[] getDataAsByteArray() {
-		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(4096);
-		try {
-			for(byte[] b:datalist) {
-				if(b!=null) outputStream.write(b);
-			}
-		} catch(Exception e) {
-			System.err.println("getDataAsByteArray Exception: "+e);
+		byte[] data = new byte[dataLength()];
+		int k = 0;
+		for(Segment seg:segments) {				// frames in a segment are contiguous
+			if(seg.buf == null) continue;
+			System.arraycopy(seg.buf, seg.off, data, k, seg.count*seg.len);
+			k += seg.count*seg.len;
 		}
-		return outputStream.toByteArray();
+		return data;
 	}
 	
 	/**
@@ -604,10 +969,10 @@ public class CTdata {
 	 * @return array of data
 	 */
 	public byte[][] getData() {
-		int nword = datalist.size();
-		byte[][] data = new byte[nword][];		// presume 1 element per arraylist
+		int nword = ntime;
+		byte[][] data = new byte[nword][];		// presume 1 element per frame
 		for(int i=0; i<nword; i++) {
-			data[i] = datalist.get(i);
+			data[i] = frame(i);
 		}
 		return data;
 	}
@@ -619,7 +984,7 @@ public class CTdata {
 	 */
 	public String[] getDataAsString(char ftype) {
 		
-		int numData = datalist.size();
+		int numData = ntime;
 		String[] response = new String[numData];
 		
 		switch(ftype) {
@@ -0,0 +1,246 @@
+/*
+Copyright 2026 agent
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package cycronix.ctlib;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * CloudTurbine utility class:  streaming downsample of numeric channel data to at most N points.
+ * Points are added in time order (e.g. CTcursor chunks) in one pass;  the time range is split into equal-time buckets:
+ * <ul>
+ * <li>"minmax":  min and max point of each bucket (in time order), N/2 buckets
+ * <li>"lttb":    largest-triangle-three-buckets visual downsample, first and last points plus one per bucket
+ * <li>"mean":    mean value at mean time of each bucket, N buckets
+ * </ul>
+ * minmax and lttb return actual data points;  the result is encoded in the channel's own data type (and byte order)
+ * so it formats the same as getData results.  Memory use is bounded by N (plus two buckets of points for lttb).
+ * <p>
+ * @author agent
+ * @version 2026/10/19
+ *
+*/
+
+public class CTdownsample {
+
+	private static final int MINMAX=0, LTTB=1, MEAN=2;
+
+	private final int mode;
+	private final char ftype;
+	private final double start, width;			// bucket start time, width (sec)
+	private final int nbucket;
+	private ByteOrder border = ByteOrder.LITTLE_ENDIAN;
+	private boolean swap = false;
+
+	private double[] otime, ovalue;				// output points
+	private int nout = 0;
+
+	// current bucket state
+	private int bucket = -1;
+	private int count = 0;
+	private double tmin, vmin, tmax, vmax;		// minmax
+	private double tsum, vsum;					// mean
+	private double tlast, vlast;				// most recent point
+
+	// lttb:  bucket A (to select from) and bucket B (next, for its average)
+	private double[] ta = new double[64], va = new double[64], tb = new double[64], vb = new double[64];
+	private int na = 0, nb = 0;
+	private double tsel, vsel;					// last selected point
+	private boolean first = true;
+
+	/**
+	 * Constructor
+	 * @param chan channel name (determines data type)
+	 * @param start start time of range (sec)
+	 * @param end end time of range (sec)
+	 * @param maxPoints max number of points to return
+	 * @param agg aggregation: "minmax" (default), "lttb", or "mean"
+	 */
+	public CTdownsample(String chan, double start, double end, int maxPoints, String agg) {
+		ftype = CTinfo.fileType(chan);
+		if("lttb".equals(agg)) 			mode = LTTB;
+		else if("mean".equals(agg))		mode = MEAN;
+		else							mode = MINMAX;
+
+		maxPoints = Math.max(3, maxPoints);
+		if(mode == MINMAX) 		nbucket = maxPoints / 2;
+		else if(mode == LTTB)	nbucket = maxPoints - 2;
+		else					nbucket = maxPoints;
+		this.start = start;
+		this.width = (end > start) ? ((end - start) / nbucket) : 0.;
+		otime = new double[Math.min(maxPoints, 1024)];
+		ovalue = new double[otime.length];
+	}
+
+	/**
+	 * Check if data type can be downsampled (numeric types)
+	 * @param chan channel name
+	 * @return true if numeric
+	 */
+	public static boolean isNumeric(String chan) {
+		return "FNfnIij".indexOf(CTinfo.fileType(chan)) >= 0;
+	}
+
+	/**
+	 * set word swap (as CTdata.setSwap) for input and output data
+	 * @param swap true: BIG_ENDIAN, false: LITTLE_ENDIAN (default)
+	 */
+	public void setSwap(boolean swap) {
+		this.swap = swap;
+		border = swap ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	/**
+	 * Add data, in time order
+	 * @param ctd data chunk (e.g. from CTcursor)
+	 */
+	public void add(CTdata ctd) {
+		if(ctd == null) return;
+		ctd.setSwap(swap);
+		double[] v = values(ctd, ftype);
+		if(v == null) return;
+		int n = Math.min(v.length, ctd.size());
+		for(int i=0; i<n; i++) add(ctd.time(i), v[i]);
+	}
+
+	/**
+	 * Add one point, in time order
+	 * @param t time (sec)
+	 * @param v value
+	 */
+	public void add(double t, double v) {
+		if(Double.isNaN(v)) return;
+		int b = (width > 0.) ? (int)Math.min(nbucket-1, Math.max(0, Math.floor((t - start) / width))) : 0;
+
+		if(mode == LTTB) {
+			if(first) { emit(t, v); tsel = t; vsel = v; first = false; }
+			if(b != bucket && nb > 0) {							// bucket B complete:  select from A, shift B to A
+				if(na > 0) selectA(mean(tb, nb), mean(vb, nb));
+				double[] tt = ta, vv = va;	ta = tb; va = vb;	tb = tt; vb = vv;
+				na = nb;	nb = 0;
+			}
+			if(nb == tb.length) { tb = grow(tb); vb = grow(vb); }
+			tb[nb] = t;		vb[nb] = v;		nb++;
+		}
+		else {
+			if(b != bucket) flush();
+			if(count == 0) { tmin = tmax = t; vmin = vmax = v; tsum = vsum = 0.; }
+			if(v < vmin) { vmin = v; tmin = t; }
+			if(v > vmax) { vmax = v; tmax = t; }
+			tsum += t;		vsum += v;
+			count++;
+		}
+		bucket = b;
+		tlast = t;	vlast = v;
+	}
+
+	/**
+	 * Get downsampled result.  Call once, after all data is added.
+	 * @return CTdata with at most maxPoints points
+	 */
+	public CTdata getData() {
+		if(mode == LTTB) {
+			if(nb > 0) {
+				if(na > 0) selectA(mean(tb, nb), mean(vb, nb));	// last bucket pair
+				double[] tt = ta, vv = va;	ta = tb; va = vb;	tb = tt; vb = vv;
+				na = nb;	nb = 0;
+				if(na > 1) selectA(tlast, vlast);
+				if(tsel != tlast) emit(tlast, vlast);			// always include last point
+			}
+		}
+		else flush();
+
+		CTdata ctd = new CTdata();
+		ctd.setSwap(swap);
+		for(int i=0; i<nout; i++) ctd.add(otime[i], encode(ovalue[i]));
+		return ctd;
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// close out current minmax or mean bucket
+	private void flush() {
+		if(count == 0) return;
+		if(mode == MEAN) 			emit(tsum/count, vsum/count);
+		else if(tmin == tmax) 		emit(tmin, vmin);
+		else if(tmin < tmax) 	{	emit(tmin, vmin);	emit(tmax, vmax);	}
+		else					{	emit(tmax, vmax);	emit(tmin, vmin);	}
+		count = 0;
+	}
+
+	// lttb:  pick point of bucket A with largest triangle area against last selected point and next-bucket average
+	private void selectA(double tnext, double vnext) {
+		int isel = -1;
+		double amax = -1.;
+		for(int i=0; i<na; i++) {
+			if(ta[i] == tsel) continue;							// already selected (first point)
+			double area = Math.abs((tsel - tnext) * (va[i] - vsel) - (tsel - ta[i]) * (vnext - vsel));
+			if(area > amax) { amax = area; isel = i; }
+		}
+		if(isel < 0) return;
+		emit(ta[isel], va[isel]);
+		tsel = ta[isel];	vsel = va[isel];
+	}
+
+	private void emit(double t, double v) {
+		if(nout == otime.length) { otime = grow(otime); ovalue = grow(ovalue); }
+		otime[nout] = t;	ovalue[nout] = v;	nout++;
+	}
+
+	private static double mean(double[] d, int n) {
+		double sum = 0.;
+		for(int i=0; i<n; i++) sum += d[i];
+		return sum / n;
+	}
+
+	private static double[] grow(double[] d) {
+		double[] dd = new double[2*d.length];
+		System.arraycopy(d, 0, dd, 0, d.length);
+		return dd;
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// values of numeric data types as double, null if not numeric
+	static double[] values(CTdata ctd, char ftype) {
+		double[] v = null;
+		switch(ftype) {
+		case 'F':	return ctd.getDataAsFloat64();
+		case 'N':	return ctd.getDataAsNumericF64();
+		case 'f':	{ float[] d = ctd.getDataAsFloat32();	v = new double[d.length];	for(int i=0; i<d.length; i++) v[i] = d[i];	return v; }
+		case 'n':	{ float[] d = ctd.getDataAsNumericF32();	v = new double[d.length];	for(int i=0; i<d.length; i++) v[i] = d[i];	return v; }
+		case 'I':	{ long[] d = ctd.getDataAsInt64();		v = new double[d.length];	for(int i=0; i<d.length; i++) v[i] = d[i];	return v; }
+		case 'i':	{ int[] d = ctd.getDataAsInt32();		v = new double[d.length];	for(int i=0; i<d.length; i++) v[i] = d[i];	return v; }
+		case 'j':	{ short[] d = ctd.getDataAsInt16();		v = new double[d.length];	for(int i=0; i<d.length; i++) v[i] = d[i];	return v; }
+		default:	return null;
+		}
+	}
+
+	// value as one word of channel data type (int types rounded)
+	private byte[] encode(double v) {
+		switch(ftype) {
+		case 'F':	return ByteBuffer.allocate(8).order(border).putDouble(v).array();
+		case 'f':	return ByteBuffer.allocate(4).order(border).putFloat((float)v).array();
+		case 'I':	return ByteBuffer.allocate(8).order(border).putLong(Math.round(v)).array();
+		case 'i':	return ByteBuffer.allocate(4).order(border).putInt((int)Math.round(v)).array();
+		case 'j':	return ByteBuffer.allocate(2).order(border).putShort((short)Math.round(v)).array();
+		case 'n':	return Float.toString((float)v).getBytes();
+		default:
+			if(v == Math.rint(v) && Math.abs(v) < 1e15) return Long.toString((long)v).getBytes();	// integer-valued CSV
+			return Double.toString(v).getBytes();
+		}
+	}
+}
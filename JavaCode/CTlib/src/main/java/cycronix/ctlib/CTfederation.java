@@ -0,0 +1,565 @@
+/*
+Copyright 2026 agent
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package cycronix.ctlib;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * CloudTurbine federated reader:  one CTreader over several root folders (e.g. one per disk).
+ * Source lists are merged, and each request goes to the root(s) holding its source.
+ * Requests spanning roots (source lists, a source split over roots) read the roots concurrently.
+ * A source found in several roots is taken to hold different time spans in each:  range requests
+ * merge the roots' data in time order, point requests (zero duration) go to the root holding the requested time.
+ * Cursors, joins and subscriptions use a single root (holding the start time, or the newest data).
+ * <p>
+ * @author agent
+ * @version 2026/10/19
+ *
+*/
+
+public class CTfederation extends CTreader {
+
+	private static final long OWNER_UPDATE = 1000;			// msec, re-check which roots hold a source
+	private static final int MAX_OWNERS = 10000;			// max cached source owner entries
+
+	private ArrayList<CTreader> readers = new ArrayList<CTreader>();
+	private boolean swap = false;
+
+	// roots holding source, by source
+	private final Map<String, Owners> owners = new LinkedHashMap<String, Owners>(16, 0.75f, true) {
+		protected boolean removeEldestEntry(Map.Entry<String, Owners> eldest) {
+			return size() > MAX_OWNERS;
+		}
+	};
+
+	private static class Owners {
+		final CTreader[] readers;
+		final long time;
+		Owners(CTreader[] readers) { this.readers = readers; this.time = System.currentTimeMillis(); }
+	}
+
+	// time span of channel in one root
+	private static class Span {
+		final CTreader reader;
+		final double oldest, newest, end;			// newest:  index time for fetch modes, end:  of newest data
+		Span(CTreader reader, double[] tlimits, double newest) {
+			this.reader = reader;
+			this.oldest = tlimits[0];
+			this.newest = newest;
+			this.end = tlimits[1];
+		}
+	}
+
+	/**
+	 * Constructor
+	 * @param rootFolders root folders, separated by File.pathSeparator (e.g. "/disk1/CTdata:/disk2/CTdata")
+	 */
+	public CTfederation(String rootFolders) {
+		this(split(rootFolders));
+	}
+
+	/**
+	 * Constructor
+	 * @param rootFolders list of root folders
+	 */
+	public CTfederation(List<String> rootFolders) {
+		super(rootFolders.isEmpty() ? "CTdata" : rootFolders.get(0));
+		setRoots(rootFolders);
+	}
+
+	private static List<String> split(String rootFolders) {
+		ArrayList<String> roots = new ArrayList<String>();
+		for(String r:rootFolders.split(File.pathSeparator)) if(r.length() > 0) roots.add(r);
+		return roots;
+	}
+
+	private synchronized void setRoots(List<String> rootFolders) {
+		ArrayList<CTreader> rlist = new ArrayList<CTreader>();
+		for(String r:rootFolders) rlist.add(new CTreader(r));
+		if(readers != null) for(CTreader r:readers) r.close();		// replaced
+		readers = rlist;
+		owners.clear();
+	}
+
+	private synchronized ArrayList<CTreader> readers() {
+		return readers;
+	}
+
+	/**
+	 * Set root folders
+	 * @param fname root folders, separated by File.pathSeparator
+	 */
+	@Override
+	public void setFolder(String fname) {
+		setRoots(split(fname));
+	}
+
+	/**
+	 * Get root folders
+	 * @return root folders, separated by File.pathSeparator
+	 */
+	@Override
+	public String getFolder() {
+		StringBuilder sb = new StringBuilder();
+		for(CTreader r:readers()) {
+			if(sb.length() > 0) sb.append(File.pathSeparator);
+			sb.append(r.getFolder());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Get readers of each root folder
+	 * @return list of readers
+	 */
+	public List<CTreader> getReaders() {
+		return Collections.unmodifiableList(readers());
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// routing
+
+	// readers of roots holding source (null:  all roots)
+	private CTreader[] owners(String source) {
+		String key = (source == null) ? "" : source;
+		synchronized(owners) {
+			Owners o = owners.get(key);
+			if(o != null && (System.currentTimeMillis() - o.time) < OWNER_UPDATE) return o.readers;
+		}
+		ArrayList<CTreader> olist = new ArrayList<CTreader>();
+		for(CTreader r:readers()) {
+			File sfolder = (source == null) ? new File(r.getFolder()) : new File(r.getFolder() + File.separator + source);
+			if(sfolder.isDirectory()) olist.add(r);
+		}
+		CTreader[] o = olist.toArray(new CTreader[olist.size()]);
+		synchronized(owners) { owners.put(key, new Owners(o)); }
+		return o;
+	}
+
+	// source relative to root (strip any root prefix)
+	private String relative(String sfolder) {
+		for(CTreader r:readers()) {
+			String root = r.getFolder() + File.separator;
+			if(sfolder.startsWith(root)) return sfolder.substring(root.length());
+		}
+		return sfolder;
+	}
+
+	// channel time spans of roots holding it, sorted by oldest time
+	private ArrayList<Span> spans(CTreader[] own, String source, String chan) throws Exception {
+		ArrayList<Span> spans = new ArrayList<Span>();
+		for(CTreader r:own) {
+			double[] tlimits = r.timeLimits(source, chan);
+			if(tlimits != null && tlimits[1] > 0.) spans.add(new Span(r, tlimits, r.indexNewTime(source, chan)));
+		}
+		Collections.sort(spans, new Comparator<Span>() {
+			public int compare(Span a, Span b) { return Double.compare(a.oldest, b.oldest); }
+		});
+		return spans;
+	}
+
+	// absolute time range of request over all spans (as CTreader.timeRange), null for point requests
+	private static double[] timeRange(ArrayList<Span> spans, double tget, double tdur, String tmode) {
+		if(!(tdur > 0.)) return null;
+		double oldest = spans.get(0).oldest;
+		double newest = 0.;
+		for(Span s:spans) newest = Math.max(newest, s.newest);
+
+		double start;
+		if(tmode.equals("absolute"))	start = tget;
+		else if(tmode.equals("oldest"))	start = oldest;
+		else if(tmode.equals("newest"))	start = newest - tdur - tget;
+		else if(tmode.equals("after")) {
+			start = tget;
+			if((newest - tget) > tdur) start = newest - tdur;
+			start += 0.000001;
+		}
+		else return null;
+		return new double[] { start, start + tdur };
+	}
+
+	// root for point request:  newest or oldest data, else holding time
+	private static Span pointSpan(ArrayList<Span> spans, double tget, String tmode) {
+		if(tmode.equals("newest") || tmode.equals("after")) {
+			Span newest = spans.get(0);
+			for(Span s:spans) if(s.newest > newest.newest) newest = s;
+			return newest;
+		}
+		Span at = spans.get(0);
+		if(tmode.equals("oldest")) return at;
+		for(Span s:spans) if(s.oldest <= tget) at = s;
+		return at;
+	}
+
+	// root with newest data of source, null if none
+	private CTreader newest(CTreader[] own, String source) {
+		CTreader newest = null;
+		double ntime = 0.;
+		for(CTreader r:own) {
+			double t = r.newTime(source);
+			if(newest == null || t > ntime) { newest = r;	ntime = t; }
+		}
+		return newest;
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// data
+
+	@Override
+	public CTmap getDataMap(CTmap ctmap, String source, double getftime, double duration, String rmode, boolean timeOnly) throws Exception {
+		CTreader[] own = owners(source);
+		if(own.length == 0) return ctmap;
+		if(own.length == 1) return own[0].getDataMap(ctmap, source, getftime, duration, rmode, timeOnly);
+
+		// source in several roots:  one single-channel read per root holding part of each channel's request
+		ArrayList<String> chans = new ArrayList<String>();
+		ArrayList<Callable<CTdata>> reads = new ArrayList<Callable<CTdata>>();
+		for(String chan:ctmap.keySet()) {
+			ArrayList<Span> spans = spans(own, source, chan);
+			if(spans.isEmpty()) continue;
+			double[] trange = timeRange(spans, getftime, duration, rmode);
+			if(trange == null) {
+				chans.add(chan);
+				reads.add(read(pointSpan(spans, getftime, rmode).reader, source, chan, getftime, duration, rmode, timeOnly));
+				continue;
+			}
+			for(Span s:spans) {
+				if(s.end < trange[0] || s.oldest > trange[1]) continue;		// no part of range
+				chans.add(chan);
+				reads.add(read(s.reader, source, chan, trange[0], duration, "absolute", timeOnly));
+			}
+		}
+
+		ArrayList<CTdata> results = fanOut(reads);
+		for(int i=0; i<results.size(); i++) {
+			if(results.get(i) != null) ctmap.add(chans.get(i), results.get(i));		// spans in time order:  append
+		}
+		return ctmap;
+	}
+
+	private static Callable<CTdata> read(final CTreader r, final String source, final String chan, final double tget, final double tdur, final String tmode, final boolean timeOnly) {
+		return new Callable<CTdata>() {
+			public CTdata call() throws Exception {
+				CTmap cm = r.getDataMap(new CTmap(chan), source, tget, tdur, tmode, timeOnly);
+				return (cm == null) ? null : cm.get(chan);
+			}
+		};
+	}
+
+	@Override
+	public CTdata getData(String source, String chan, double tget, double tdur, String tmode, int maxPoints, String agg, boolean timeOnly) throws Exception {
+		CTreader[] own = owners(source);
+		if(own.length == 1) return own[0].getData(source, chan, tget, tdur, tmode, maxPoints, agg, timeOnly);
+
+		CTdata data = getData(source, chan, tget, tdur, tmode, timeOnly);			// merged over roots
+		if(data == null || data.size() < 2 || maxPoints <= 0 || !(tdur > 0.) || timeOnly || !CTdownsample.isNumeric(chan)) return data;
+		double[] time = data.getTime();
+		CTdownsample ds = new CTdownsample(chan, time[0], time[time.length-1], maxPoints, agg);
+		ds.setSwap(swap);
+		ds.add(data);
+		return ds.getData();
+	}
+
+	@Override
+	public CTaggregate getAggregate(String source, String chan, double tget, double tdur, String tmode, double window) throws Exception {
+		CTreader[] own = owners(source);
+		if(own.length == 1) return own[0].getAggregate(source, chan, tget, tdur, tmode, window);
+		if(!(window > 0.) || !(tdur > 0.) || !CTdownsample.isNumeric(chan)) return null;
+
+		CTdata data = getData(source, chan, tget, tdur, tmode, false);		// merged over roots
+		if(data == null) return null;
+		CTaggregate ca = new CTaggregate(chan, window);
+		ca.setSwap(swap);
+		ca.add(data);
+		return ca;
+	}
+
+	@Override
+	public CTjoin join(String source, ArrayList<String> chans, double tget, double tdur, String tmode, String policy) throws Exception {
+		CTreader r = newest(owners(source), source);
+		return (r == null) ? null : r.join(source, chans, tget, tdur, tmode, policy);
+	}
+
+	@Override
+	public CTcursor cursor(String source, String chan, double t0, double t1) throws Exception {
+		CTreader[] own = owners(source);
+		if(own.length == 1) return own[0].cursor(source, chan, t0, t1);
+		ArrayList<Span> spans = spans(own, source, chan);
+		CTreader r = spans.isEmpty() ? ((own.length > 0) ? own[0] : readers().get(0)) : pointSpan(spans, t0, "absolute").reader;
+		return r.cursor(source, chan, t0, t1);
+	}
+
+	@Override
+	public CTsubscription subscribe(String source, String chanPattern, CTsubscription.Listener listener, int maxQueue) {
+		CTreader r = newest(owners(source), source);
+		if(r == null) r = readers().get(0);								// not yet written:  first root
+		return r.subscribe(source, chanPattern, listener, maxQueue);
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// times
+
+	@Override
+	public double[] timeLimits(String sourceFolder, String chan) throws Exception {
+		double[] tlimits = new double[]{0,0};
+		for(CTreader r:owners(sourceFolder)) {
+			double[] t = r.timeLimits(sourceFolder, chan);
+			if(t == null || !(t[1] > 0.)) continue;
+			if(tlimits[1] == 0. || t[0] < tlimits[0]) tlimits[0] = t[0];
+			if(t[1] > tlimits[1]) tlimits[1] = t[1];
+		}
+		return tlimits;
+	}
+
+	@Override
+	public double oldTime(String sourceFolder) {
+		double t = 0.;
+		for(CTreader r:owners(sourceFolder)) t = older(t, r.oldTime(sourceFolder));
+		return t;
+	}
+
+	@Override
+	public double oldTime(String sourceFolder, String chan) {
+		double t = 0.;
+		for(CTreader r:owners(sourceFolder)) t = older(t, r.oldTime(sourceFolder, chan));
+		return t;
+	}
+
+	@Override
+	public double oldTime(String sourceFolder, CTmap ctmap) {
+		double t = 0.;
+		for(CTreader r:owners(sourceFolder)) t = older(t, r.oldTime(sourceFolder, ctmap));
+		return t;
+	}
+
+	@Override
+	public double newTime(String sourceFolder) {
+		double t = 0.;
+		for(CTreader r:owners(sourceFolder)) t = Math.max(t, r.newTime(sourceFolder));
+		return t;
+	}
+
+	@Override
+	public double newTime(String sourceFolder, String chan) {
+		double t = 0.;
+		for(CTreader r:owners(sourceFolder)) t = Math.max(t, r.newTime(sourceFolder, chan));
+		return t;
+	}
+
+	@Override
+	public double newTime(String sourceFolder, CTmap ctmap) {
+		double t = 0.;
+		for(CTreader r:owners(sourceFolder)) t = Math.max(t, r.newTime(sourceFolder, ctmap));
+		return t;
+	}
+
+	// oldest of valid (non-zero) times
+	private static double older(double t1, double t2) {
+		if(t1 <= 0.) return t2;
+		if(t2 <= 0.) return t1;
+		return Math.min(t1, t2);
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// listings
+
+	@Override
+	public ArrayList<String> listSources() throws IOException {
+		ArrayList<Callable<ArrayList<String>>> lists = new ArrayList<Callable<ArrayList<String>>>();
+		for(final CTreader r:readers()) {
+			lists.add(new Callable<ArrayList<String>>() {
+				public ArrayList<String> call() throws Exception { return r.listSources(); }
+			});
+		}
+		TreeSet<String> sources = new TreeSet<String>();
+		try {
+			for(ArrayList<String> slist:fanOut(lists)) if(slist != null) sources.addAll(slist);
+		} catch(IOException e) {
+			throw e;
+		} catch(Exception e) {
+			throw new IOException("CTfederation listSources error: "+e, e);
+		}
+		return new ArrayList<String>(sources);
+	}
+
+	@Override
+	public ArrayList<String> listChans(String sfolder, final boolean fastSearch) {
+		final String source = relative(sfolder);
+		CTreader[] own = owners(source);
+		if(own.length == 0) return null;
+		if(own.length == 1) return own[0].listChans(source, fastSearch);
+
+		ArrayList<Callable<ArrayList<String>>> lists = new ArrayList<Callable<ArrayList<String>>>();
+		for(final CTreader r:own) {
+			lists.add(new Callable<ArrayList<String>>() {
+				public ArrayList<String> call() throws Exception { return r.listChans(source, fastSearch); }
+			});
+		}
+		TreeSet<String> chans = new TreeSet<String>();
+		try {
+			for(ArrayList<String> clist:fanOut(lists)) if(clist != null) chans.addAll(clist);
+		} catch(Exception e) {
+			System.err.println("CTfederation listChans error, source: "+source+": "+e);
+		}
+		return new ArrayList<String>(chans);
+	}
+
+	@Override
+	public boolean checkRoot() {
+		for(CTreader r:readers()) if(r.checkRoot()) return true;
+		return false;
+	}
+
+	@Override
+	public long getSourcesVersion() {
+		long version = 0;
+		for(CTreader r:readers()) version += r.getSourcesVersion();		// each only increases
+		return version;
+	}
+
+	@Override
+	public long getChansVersion() {
+		long version = 0;
+		for(CTreader r:readers()) version += r.getChansVersion();
+		return version;
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// cache and configuration:  applied to each root's reader
+
+	@Override
+	public void preCache(String source) throws Exception {
+		for(CTreader r:owners(source)) r.preCache(source);
+	}
+
+	@Override
+	public void preCache() throws Exception {
+		for(CTreader r:readers()) r.preCache();
+	}
+
+	@Override
+	public void clearFileListCache() {
+		super.clearFileListCache();
+		for(CTreader r:readers()) r.clearFileListCache();
+		synchronized(owners) { owners.clear(); }
+	}
+
+	@Override
+	public void clearFileListCache(String chanKey) {
+		for(CTreader r:readers()) r.clearFileListCache(chanKey);
+	}
+
+	@Override
+	long[] indexSize() {
+		long[] isize = new long[2];
+		for(CTreader r:readers()) {
+			long[] s = r.indexSize();
+			isize[0] += s[0];
+			isize[1] += s[1];
+		}
+		return isize;
+	}
+
+	@Override
+	public void close() {
+		super.close();
+		for(CTreader r:readers()) r.close();
+	}
+
+	@Override
+	public void setParallelFetch(boolean pflag) {
+		super.setParallelFetch(pflag);
+		for(CTreader r:readers()) r.setParallelFetch(pflag);
+	}
+
+	@Override
+	public void setSwap(boolean swap) {
+		super.setSwap(swap);
+		this.swap = swap;
+		for(CTreader r:readers()) r.setSwap(swap);
+	}
+
+	@Override
+	public void setReadAhead(boolean rflag) {
+		super.setReadAhead(rflag);
+		for(CTreader r:readers()) r.setReadAhead(rflag);
+	}
+
+	@Override
+	public void setPassword(String password) throws Exception {
+		for(CTreader r:readers()) r.setPassword(password);
+	}
+
+	@Override
+	public void setPassword(String password, boolean optionalDecrypt) throws Exception {
+		for(CTreader r:readers()) r.setPassword(password, optionalDecrypt);
+	}
+
+	@Override
+	public void setDecryptCacheSize(long maxBytes) {
+		for(CTreader r:readers()) r.setDecryptCacheSize(maxBytes);
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// fanOut:  run calls concurrently on the fetch pool (async request, if any, follows), results in call order.
+	// calls must not themselves wait on the fetch pool (e.g. multi-channel getDataMap)
+
+	private static <V> ArrayList<V> fanOut(ArrayList<Callable<V>> calls) throws Exception {
+		ArrayList<V> results = new ArrayList<V>();
+		if(calls.size() == 1) {
+			results.add(calls.get(0).call());
+			return results;
+		}
+
+		ArrayList<Future<V>> futures = new ArrayList<Future<V>>();
+		final CTfuture<?> request = CTfuture.current();
+		for(final Callable<V> call:calls) {
+			futures.add(fetchExecutor().submit(new Callable<V>() {
+				public V call() throws Exception {
+					CTfuture<?> prior = CTfuture.enter(request);
+					try {
+						return call.call();
+					} finally {
+						CTfuture.exit(prior);
+					}
+				}
+			}));
+		}
+
+		Exception error = null;
+		for(Future<V> f:futures) {								// wait for all, even on error
+			try { results.add(f.get()); }
+			catch(ExecutionException e) {
+				results.add(null);
+				if(error == null) error = (e.getCause() instanceof Exception) ? (Exception)e.getCause() : e;
+			}
+		}
+		if(error != null) throw error;
+		return results;
+	}
+}
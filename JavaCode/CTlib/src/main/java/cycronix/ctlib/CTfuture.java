@@ -0,0 +1,213 @@
+/*
+Copyright 2026 agent
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package cycronix.ctlib;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * CloudTurbine asynchronous read result (see CTreader.getDataAsync).
+ * A Future with completion listeners and an optional deadline:  a request not finished by its deadline
+ * completes with TimeoutException, and one still queued at its deadline never runs.
+ * A cancelled or expired request completes at once;  its reader stops at the next file (reader threads are
+ * not interrupted:  an interrupt closes file channels shared with other readers).
+ * Listeners are called once on completion, in the completing thread.
+ * <p>
+ * @author agent
+ * @version 2026/10/19
+ *
+*/
+
+public class CTfuture<V> extends FutureTask<V> {
+
+	/**
+	 * Notified when a CTfuture completes (result, exception, timeout or cancel)
+	 */
+	public interface Listener<V> {
+		/**
+		 * Request done:  get() returns without blocking
+		 * @param future completed request
+		 */
+		void onDone(CTfuture<V> future);
+	}
+
+	private final long deadline;						// msec, 0 for none
+	private ScheduledFuture<?> timer = null;
+	private ArrayList<Listener<V>> listeners = new ArrayList<Listener<V>>();		// null once done
+
+	private static ScheduledThreadPoolExecutor deadlineThread = null;
+	private static final ThreadLocal<CTfuture<?>> current = new ThreadLocal<CTfuture<?>>();		// request being read by thread
+
+	CTfuture(Callable<V> call, long timeout) {
+		super(call);
+		deadline = (timeout > 0) ? (System.currentTimeMillis() + timeout) : 0;
+	}
+
+	/**
+	 * Submit request
+	 * @param executor I/O executor
+	 * @param call read request
+	 * @param timeout deadline from now (msec), 0 for none
+	 * @return request;  completed with RejectedExecutionException if executor is full
+	 */
+	static <V> CTfuture<V> submit(ExecutorService executor, Callable<V> call, long timeout) {
+		final CTfuture<V> future = new CTfuture<V>(call, timeout);
+		if(timeout > 0) {
+			ScheduledFuture<?> t = timer().schedule(new Runnable() {
+				public void run() { future.expire(); }
+			}, timeout, TimeUnit.MILLISECONDS);
+			synchronized(future) {
+				if(future.isDone()) t.cancel(false);
+				else				future.timer = t;
+			}
+		}
+		try {
+			executor.execute(future);
+		} catch(RejectedExecutionException e) {
+			future.setException(e);					// never block the caller
+		}
+		return future;
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	@Override
+	public void run() {
+		if(isDone()) return;								// cancelled or expired in queue
+		CTfuture<?> prior = enter(this);
+		try {
+			super.run();
+		} finally {
+			exit(prior);
+		}
+	}
+
+	/**
+	 * Cancel request.  The reader thread is never interrupted (mayInterruptIfRunning is ignored), it stops at the next file.
+	 */
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		return super.cancel(false);
+	}
+
+	// deadline:  complete with timeout
+	private void expire() {
+		setException(new TimeoutException("CTreader request deadline passed"));		// no-op if completed meanwhile
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// cooperative stop:  readers check between files
+
+	/**
+	 * Request being read by this thread (for hand-off to helper threads)
+	 * @return request, null if none
+	 */
+	static CTfuture<?> current() 	{ return current.get(); }
+
+	/**
+	 * Read on behalf of request in this thread
+	 * @param request request (may be null)
+	 * @return prior request of thread, for exit
+	 */
+	static CTfuture<?> enter(CTfuture<?> request) {
+		CTfuture<?> prior = current.get();
+		current.set(request);
+		return prior;
+	}
+
+	static void exit(CTfuture<?> prior) {
+		if(prior == null) 	current.remove();
+		else				current.set(prior);
+	}
+
+	/**
+	 * Stop reading if this thread's request was cancelled or expired
+	 * @throws CancellationException if so
+	 */
+	static void checkCancelled() {
+		CTfuture<?> request = current.get();
+		if(request != null && request.isDone()) throw new CancellationException("CTreader request cancelled or expired");
+	}
+
+	@Override
+	protected void done() {
+		ArrayList<Listener<V>> notify;
+		synchronized(this) {
+			if(timer != null) timer.cancel(false);
+			timer = null;
+			notify = listeners;
+			listeners = null;
+		}
+		if(notify != null) for(Listener<V> l:notify) call(l);
+	}
+
+	/**
+	 * Add completion listener.  Called immediately if already done.
+	 * @param listener completion listener
+	 * @return this
+	 */
+	public CTfuture<V> addListener(Listener<V> listener) {
+		synchronized(this) {
+			if(listeners != null) {
+				listeners.add(listener);
+				return this;
+			}
+		}
+		call(listener);
+		return this;
+	}
+
+	private void call(Listener<V> l) {
+		try {
+			l.onDone(this);
+		} catch(Exception e) {
+			System.err.println("CTfuture listener exception: "+e);
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Deadline of request
+	 * @return deadline (msec since epoch), 0 if none
+	 */
+	public long getDeadline() 		{ return deadline; }
+
+	//--------------------------------------------------------------------------------------------------------
+	// shared deadline timer
+
+	private static synchronized ScheduledThreadPoolExecutor timer() {
+		if(deadlineThread == null) {
+			deadlineThread = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "CTreader-deadline");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			deadlineThread.setRemoveOnCancelPolicy(true);		// completed requests don't linger in timer queue
+		}
+		return deadlineThread;
+	}
+}
@@ -24,8 +24,10 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.regex.Pattern;
 
 /**
  * Utility class for CloudTurbine debugging and file info.
@@ -235,6 +237,33 @@ public class CTinfo {
 		return size.get();
 	}
 	
+  	//--------------------------------------------------------------------------------------------------------
+  	// file-time parsing:  path parts are scanned in place (no regex split, no exceptions),
+  	// and the time contribution of each parent folder is memoized so sibling files only parse their own name
+  	
+	private static final long usecTimeCheck = 1000000000000000L;	// usec	(valid trigger if basetime usec > 32 years (2002), msec <31000 years)
+	private static final long msecTimeCheck = 1000000000000L;		// msec (valid trigger if basetime msec > 32 years (2002), sec <31000 years, usec >12 days)
+	private static final long NONNUMERIC = -1L;						// part value codes
+	private static final long BADNUMBER = -2L;						// digits but not a long (e.g. empty, overflow)
+
+	private static final int MAX_PATHTIMES = 10000;					// parent-folder memo size
+	private static final Map<String,PathTime> PathTimeCache = Collections.synchronizedMap(
+			new LinkedHashMap<String,PathTime>(256, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String,PathTime> eldest) {
+					return size() > MAX_PATHTIMES;
+				}
+			});
+
+	// time of a folder path:  resolution from its first (left) time part, sum of time parts from the right
+	private static class PathTime {
+		boolean hasTime = false;		// has a time part (sets resolution)
+		long resolution = 1;			// 1 sec, 1000 msec, 1000000 us
+		long sum = 0L;					// sum of time parts (right to left)
+		boolean absolute = false;		// sum stopped at absolute msec time
+	}
+	
   	/**
   	 * Parse file-time given string 
   	 * @param fname name of file to parse
@@ -245,65 +274,116 @@ public class CTinfo {
 
   		if(fname.endsWith(".zip")) fname = fname.substring(0,fname.length()-4);		// strip (only) trailing ".zip"
     	
-		// new multi-part timestamp logic:  parse path up from file, sum relative times until first absolute fulltime
-		String[] pathparts = fname.split(Pattern.quote(File.separator)+"|/");		// use either forward or backward slash (forward is used *inside* zip files)
-		long sumtime = 0L;
-		long timeResolution = 1;					// 1 sec, 1000 msec, 1000000 us
-		int baseIndex = 0;
-		
-		final long usecTimeCheck = 1000000000000000L;	// usec	(valid trigger if basetime usec > 32 years (2002), msec <31000 years)
-		final long msecTimeCheck = 1000000000000L;		// msec (valid trigger if basetime msec > 32 years (2002), sec <31000 years, usec >12 days)
-				
+		// multi-part timestamp logic:  parse path up from file, sum relative times until first absolute fulltime.
+  		// Parts are separated by either forward or backward slash (forward is used *inside* zip files)
+  		int isep = lastSeparator(fname, fname.length());
+  		if(isep < 0) {
+  			PathTime pt = pathTime(fname, fname.length());
+  			return pathSeconds(pt, pt.sum);
+  		}
+
+  		String parent = fname.substring(0, isep);
+  		PathTime pt = PathTimeCache.get(parent);
+  		if(pt == null) {
+  			pt = pathTime(parent, parent.length());
+  			PathTimeCache.put(parent, pt);
+  		}
+  		
+  		long thistime = partValue(fname, isep+1, fname.length());
+  		if(!pt.hasTime) {												// file name is only time part
+  			if(thistime < 0) return 0.;
+  			return (double)thistime / (double)timeResolution(thistime);
+  		}
+  		if(thistime < 0) return pathSeconds(pt, pt.sum);
+  		if(pt.resolution==1000 && thistime >= msecTimeCheck) return (double)thistime / 1000.;
+  		return pathSeconds(pt, pt.sum + thistime);
+  	}
+
+  	// seconds from summed time parts
+  	private static double pathSeconds(PathTime pt, long sumtime) {
+  		if(pt.absolute) return (double)sumtime / 1000.;					// msec
+  		return (double)sumtime / (double)pt.resolution;
+  	}
+  	
+  	// base-time units (s, ms, us) from first (top) time part
+  	private static long timeResolution(long basetime) {
+		if		(basetime > usecTimeCheck) 	return 1000000;		// usec
+		else if	(basetime > msecTimeCheck) 	return 1000;		// msec 
+		else								return 1;			// sec
+  	}
+  	
+  	// time of path[0,end)
+  	private static PathTime pathTime(String path, int end) {
+  		PathTime pt = new PathTime();
+  		
 		// first parse left-to-right to establish base-time units (s, ms, us)
-		for(int i=0; i<pathparts.length; i++) {
-			try {
-				String thispart = pathparts[i];
-//				System.err.println("fileTime, fname: "+fname+", thispart: "+thispart);
-				if(!isNumeric(thispart)) continue;			// faster fail than exception
-				long basetime = Long.parseLong(thispart);
-				if		(basetime > usecTimeCheck) 	timeResolution = 1000000;	// usec
-				else if	(basetime > msecTimeCheck) 	timeResolution = 1000;		// msec 
-				else								timeResolution = 1;			// sec
-				
-//				System.err.println("fileTime, file: "+fname+", basetime: "+basetime+", timeResolution: "+timeResolution);
-				break;
-			} catch(NumberFormatException e) {
-				baseIndex++;
-				continue;		// keep looking?
-			}
-		}
-		
+  		for(int from=0; from<=end; ) {
+  			int to = nextSeparator(path, from, end);
+  			long thistime = partValue(path, from, to);
+  			if(thistime >= 0) {
+  				pt.hasTime = true;
+  				pt.resolution = timeResolution(thistime);
+  				break;
+  			}
+  			from = to + 1;
+  		}
+  		if(!pt.hasTime) return pt;
+  		
 		// then parse right to left, adding up relative times from subfolders
-		for(int i=pathparts.length-1; i>=baseIndex; i--) {	
-			String thispart = pathparts[i];
-			long thistime = 0L;
-			
-			try {
-				if(!isNumeric(thispart)) continue;			// faster fail than exception
-				thistime = Long.parseLong(thispart);
-//				thistime = Double.parseDouble(thispart);
-				sumtime += thistime;							// presume consistent msec or sec times all levels
-			} catch(NumberFormatException e) {
-//				System.err.println("non-time folder: "+thispart+", fullpath: "+fname+", baseIndex: "+baseIndex);
-				continue;		// keep looking?
-			}
-			
+  		for(int to=end; to>=0; ) {
+  			int isep = lastSeparator(path, to);
+  			long thistime = partValue(path, isep+1, to);
+  			to = isep;
+  			if(thistime < 0) continue;
+  			pt.sum += thistime;								// presume consistent msec or sec times all levels
+  			
 			// following is for legacy (deprecated) absolute-time subfolders with msec timestamps. 
 			// subfolder absolute usec timestamps not supported (would limit usec duration to <11 days).
 			// It will also trigger on top-folder msec (OK).
-			// someday eliminate all absolute-time subfolders?
-			if(timeResolution==1000 && thistime >= msecTimeCheck) {		// stop when hit absolute msec > ~32 years
-				double ftime = (double)sumtime / 1000.;			// msec
-//				System.err.println("******ABS fileTime, file: "+fname+", ftime: "+ftime);
-				return ftime;
-			}
-		}
-		
-		// with above in-loop absolute time check, only the non-msec case below will hit
-		double ftime = (double)sumtime / (double)timeResolution;
-//		System.err.println("fileTime, file: "+fname+", ftime: "+ftime+", timeResolution: "+timeResolution);
-		return ftime;
-		
+  			if(pt.resolution==1000 && thistime >= msecTimeCheck) {		// stop when hit absolute msec > ~32 years
+  				pt.absolute = true;
+  				break;
+  			}
+  		}
+  		return pt;
+  	}
+
+  	private static boolean isSeparator(char c) {
+  		return c == '/' || c == File.separatorChar;
+  	}
+  	
+  	// index of separator at or after from (end if none)
+  	private static int nextSeparator(String path, int from, int end) {
+  		for(int i=from; i<end; i++) if(isSeparator(path.charAt(i))) return i;
+  		return end;
+  	}
+  	
+  	// index of separator before end (-1 if none)
+  	private static int lastSeparator(String path, int end) {
+  		for(int i=end-1; i>=0; i--) if(isSeparator(path.charAt(i))) return i;
+  		return -1;
+  	}
+  	
+  	// time value of part path[from,to), as isNumeric and Long.parseLong:  NONNUMERIC or BADNUMBER if not a time
+  	private static long partValue(String path, int from, int to) {
+  		if(from >= to) return BADNUMBER;
+  		long value = 0L;
+  		boolean overflow = false;
+  		for(int i=from; i<to; i++) {
+  			char c = path.charAt(i);
+  			if(c >= '0' && c <= '9') {
+  				int d = c - '0';
+  				if(value > (Long.MAX_VALUE - d) / 10) overflow = true;
+  				else if(!overflow) value = 10*value + d;
+  			}
+  			else if(Character.isDigit(c)) {						// other (unicode) digits
+  				String part = path.substring(from, to);
+  				if(!isNumeric(part)) return NONNUMERIC;
+  				try { return Long.parseLong(part); } catch(NumberFormatException e) { return BADNUMBER; }
+  			}
+  			else return NONNUMERIC;
+  		}
+  		return overflow ? BADNUMBER : value;
   	}
   	
   	/**
@@ -0,0 +1,309 @@
+/*
+Copyright 2026 agent
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package cycronix.ctlib;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+
+/**
+ * CloudTurbine utility class:  time-aligned merge-join of multiple channels.
+ * Each channel is streamed in time order (CTcursor), and rows are produced in one linear pass:
+ * <ul>
+ * <li>"exact":     one row per distinct time of any channel, values where a channel has a point at that time (outer join)
+ * <li>"previous":  one row per reference-clock time, most recent value at or before that time
+ * <li>"nearest":   one row per reference-clock time, value closest in time
+ * <li>"linear":    one row per reference-clock time, linear interpolation between neighbor points (strings use previous)
+ * </ul>
+ * The reference clock is the times of one channel (default first channel), or a fixed interval.
+ * Numeric channels are returned as double values (NaN if none), other string channels as String.
+ * <p>
+ * Get a CTjoin from CTreader.join(), then loop on next() and read the current row.
+ * <p>
+ * @author agent
+ * @version 2026/10/19
+ *
+*/
+
+public class CTjoin implements Closeable {
+
+	public static final int EXACT=0, PREVIOUS=1, NEAREST=2, LINEAR=3;
+
+	private final int policy;
+	private final Stream[] streams;
+	private final double start, end;			// time range (sec)
+	private int refChan = 0;					// reference clock channel
+	private double interval = 0.;				// reference clock interval (sec), 0 to use refChan
+	private long irow = 0;
+	private double time;						// current row time
+	private boolean started = false;
+
+	/**
+	 * Constructor (see CTreader.join)
+	 */
+	CTjoin(ArrayList<String> chans, ArrayList<CTcursor> cursors, double start, double end, int policy) {
+		this.policy = policy;
+		this.start = start;
+		this.end = end;
+		streams = new Stream[chans.size()];
+		for(int i=0; i<streams.length; i++) streams[i] = new Stream(chans.get(i), cursors.get(i));
+	}
+
+	/**
+	 * Join policy code for name
+	 * @param name "exact", "previous", "nearest", or "linear"
+	 * @return policy code, -1 if unknown
+	 */
+	public static int policy(String name) {
+		if("exact".equals(name)) 		return EXACT;
+		if("previous".equals(name)) 	return PREVIOUS;
+		if("nearest".equals(name)) 		return NEAREST;
+		if("linear".equals(name)) 		return LINEAR;
+		return -1;
+	}
+
+	/**
+	 * Set reference clock to times of given channel (default 0).  Not used for "exact" policy.
+	 * @param ichan channel index
+	 */
+	public void setReference(int ichan) {
+		refChan = Math.max(0, Math.min(streams.length-1, ichan));
+		interval = 0.;
+	}
+
+	/**
+	 * Set reference clock to fixed interval from start time.  Not used for "exact" policy.
+	 * @param dt interval (sec)
+	 */
+	public void setInterval(double dt) {
+		if(dt > 0.) interval = dt;
+	}
+
+	/**
+	 * set word swap (as CTdata.setSwap)
+	 * @param swap true: BIG_ENDIAN, false: LITTLE_ENDIAN (default)
+	 */
+	public void setSwap(boolean swap) {
+		for(Stream s:streams) s.swap = swap;
+	}
+
+	/**
+	 * number of channels (columns)
+	 * @return channel count
+	 */
+	public int size() 						{ return streams.length; }
+
+	/**
+	 * channel name of column
+	 * @param col column index
+	 * @return channel name
+	 */
+	public String getName(int col) 			{ return streams[col].chan; }
+
+	/**
+	 * check for numeric (double-valued) column
+	 * @param col column index
+	 * @return true if numeric
+	 */
+	public boolean isNumeric(int col) 		{ return streams[col].numeric; }
+
+	//--------------------------------------------------------------------------------------------------------
+	/**
+	 * Advance to next row
+	 * @return true if there is a row, false at end of data
+	 */
+	public boolean next() {
+		if(!started) {
+			for(Stream s:streams) s.init();
+			started = true;
+		}
+		if(policy == EXACT) return nextExact();
+
+		if(interval > 0.) {									// fixed clock
+			time = start + (irow++) * interval;
+			if(time > end) return false;
+		}
+		else {												// clock from reference channel
+			Stream ref = streams[refChan];
+			if(!ref.hasNext) return false;
+			time = ref.nt;
+		}
+		for(Stream s:streams) {
+			s.seek(time);
+			s.align(time, policy);
+		}
+		return true;
+	}
+
+	// outer join on all distinct times
+	private boolean nextExact() {
+		boolean any = false;
+		for(Stream s:streams) {
+			if(s.hasNext && (!any || s.nt < time)) { time = s.nt; any = true; }
+		}
+		if(!any) return false;
+		for(Stream s:streams) {
+			s.has = false;
+			while(s.hasNext && s.nt == time) {				// dupe times:  last one wins
+				s.set(s.nv, s.ns);
+				s.advance();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Current row time
+	 * @return time (sec)
+	 */
+	public double getTime() 				{ return time; }
+
+	/**
+	 * Check if column has a value in current row
+	 * @param col column index
+	 * @return true if value present
+	 */
+	public boolean hasValue(int col) 		{ return streams[col].has; }
+
+	/**
+	 * Numeric value of column in current row
+	 * @param col column index
+	 * @return value, NaN if none (or not numeric)
+	 */
+	public double getValue(int col) {
+		Stream s = streams[col];
+		return (s.has && s.numeric) ? s.cv : Double.NaN;
+	}
+
+	/**
+	 * Value of column in current row as string, formatted as CTdata.getDataAsString
+	 * @param col column index
+	 * @return value, null if none
+	 */
+	public String getString(int col) {
+		Stream s = streams[col];
+		if(!s.has) return null;
+		if(!s.numeric) return s.cs;
+		double v = s.cv;
+		switch(s.ftype) {
+		case 'f':
+		case 'n':	return String.valueOf((float)v);
+		case 'I':
+		case 'i':
+		case 'j':	if(v == Math.rint(v)) return String.valueOf((long)v);
+					return String.valueOf(v);								// interpolated
+		default:	return String.valueOf(v);
+		}
+	}
+
+	/**
+	 * Read block of rows into caller column arrays (numeric columns;  others set to NaN)
+	 * @param times time per row
+	 * @param values values[col][row]
+	 * @param maxRows max rows to read
+	 * @return number of rows read (0 at end of data)
+	 */
+	public int read(double[] times, double[][] values, int maxRows) {
+		int n = 0;
+		while(n < maxRows && next()) {
+			times[n] = time;
+			for(int c=0; c<streams.length; c++) values[c][n] = getValue(c);
+			n++;
+		}
+		return n;
+	}
+
+	/**
+	 * Stop, close channel cursors
+	 */
+	public void close() {
+		for(Stream s:streams) s.cursor.close();
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// Stream:  point-at-a-time reader of one channel, with previous and next points around the current row time
+
+	private static class Stream {
+		final String chan;
+		final CTcursor cursor;
+		final char ftype;
+		final boolean numeric;
+		boolean swap = false;
+
+		double[] t, v;  String[] s;					// current chunk
+		int i = 0, n = 0;
+
+		boolean hasPrev = false, hasNext = false;
+		double pt, pv, nt, nv;	String ps, ns;
+		boolean has = false;	double cv;	String cs;		// current row value
+
+		Stream(String chan, CTcursor cursor) {
+			this.chan = chan;
+			this.cursor = cursor;
+			ftype = CTinfo.fileType(chan);
+			numeric = CTdownsample.isNumeric(chan);
+		}
+
+		void init() {
+			advance();
+		}
+
+		// move next point into (nt,nv,ns), false at end
+		boolean advance() {
+			while(i >= n) {
+				if(!cursor.hasNext()) return (hasNext = false);
+				CTdata ctd = cursor.next();
+				ctd.setSwap(swap);
+				t = ctd.getTime();
+				if(numeric) { v = CTdownsample.values(ctd, ftype);	n = (v==null) ? 0 : Math.min(v.length, t.length); }
+				else 		{ s = ctd.getDataAsString(ftype);		n = (s==null) ? 0 : Math.min(s.length, t.length); }
+				i = 0;
+			}
+			nt = t[i];
+			if(numeric) nv = v[i];
+			else		ns = s[i];
+			i++;
+			return (hasNext = true);
+		}
+
+		// advance so that prev <= tr < next
+		void seek(double tr) {
+			while(hasNext && nt <= tr) {
+				hasPrev = true;		pt = nt;	pv = nv;	ps = ns;
+				advance();
+			}
+		}
+
+		void set(double value, String svalue) {
+			has = true;		cv = value;		cs = svalue;
+		}
+
+		// value at time tr per policy
+		void align(double tr, int policy) {
+			has = false;
+			if(policy == NEAREST) {
+				boolean usePrev = hasPrev && (!hasNext || (tr - pt) <= (nt - tr));
+				if(usePrev) 		set(pv, ps);
+				else if(hasNext)	set(nv, ns);
+			}
+			else if(policy == LINEAR && numeric) {
+				if(hasPrev && pt == tr) 						set(pv, ps);
+				else if(hasPrev && hasNext && nt > pt) 			set(pv + (nv - pv) * (tr - pt) / (nt - pt), null);
+			}
+			else if(hasPrev) set(pv, ps);						// previous (and linear for strings)
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/*
+Copyright 2026 agent
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package cycronix.ctlib;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * CloudTurbine utility class:  JMX view of CTreader.getMetrics (see CTreader.registerMBean).
+ * Each metric is a read-only attribute;  operations resetMetrics and clearCaches.
+ * Kept apart from CTreader so platforms without javax.management (Android) never load it.
+ * <p>
+ * @author agent
+ * @version 2026/10/19
+ *
+*/
+
+class CTmbean implements DynamicMBean {
+
+	private final CTreader ctreader;
+
+	private CTmbean(CTreader ctreader) {
+		this.ctreader = ctreader;
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// register with platform MBean server, return object name
+	static String register(CTreader ctreader) throws Exception {
+		ObjectName name = new ObjectName("cycronix.ctlib:type=CTreader,name="+ObjectName.quote(ctreader.getFolder())
+				+",id="+Integer.toHexString(System.identityHashCode(ctreader)));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(new CTmbean(ctreader), name);
+		return name.toString();
+	}
+
+	static void unregister(String name) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName oname = new ObjectName(name);
+			if(server.isRegistered(oname)) server.unregisterMBean(oname);
+		} catch(Exception e) {
+			System.err.println("CTmbean unregister error: "+name+", "+e);
+		}
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// DynamicMBean
+
+	public Object getAttribute(String attribute) throws AttributeNotFoundException {
+		Number value = ctreader.getMetrics().get(attribute);
+		if(value == null) throw new AttributeNotFoundException(attribute);
+		return value;
+	}
+
+	public AttributeList getAttributes(String[] attributes) {
+		Map<String, Number> m = ctreader.getMetrics();				// one snapshot for all
+		AttributeList list = new AttributeList();
+		for(String a:attributes) {
+			Number value = m.get(a);
+			if(value != null) list.add(new Attribute(a, value));
+		}
+		return list;
+	}
+
+	public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+		throw new AttributeNotFoundException("read-only: "+attribute.getName());
+	}
+
+	public AttributeList setAttributes(AttributeList attributes) {
+		return new AttributeList();								// all read-only
+	}
+
+	public Object invoke(String action, Object[] params, String[] signature) throws ReflectionException {
+		if(action.equals("resetMetrics")) 		CTstats.reset();
+		else if(action.equals("clearCaches")) 	ctreader.clearFileListCache();
+		else throw new ReflectionException(new NoSuchMethodException(action));
+		return null;
+	}
+
+	// attributes as currently known (histograms appear once used)
+	public MBeanInfo getMBeanInfo() {
+		ArrayList<MBeanAttributeInfo> attrs = new ArrayList<MBeanAttributeInfo>();
+		for(Map.Entry<String, Number> e:ctreader.getMetrics().entrySet())
+			attrs.add(new MBeanAttributeInfo(e.getKey(), e.getValue().getClass().getName(), e.getKey(), true, false, false));
+		MBeanOperationInfo[] ops = {
+				new MBeanOperationInfo("resetMetrics", "Zero counters and histograms", new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION),
+				new MBeanOperationInfo("clearCaches", "Clear data caches", new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION)
+		};
+		return new MBeanInfo(CTmbean.class.getName(), "CloudTurbine reader metrics (times in microseconds)",
+				attrs.toArray(new MBeanAttributeInfo[attrs.size()]), null, ops, null);
+	}
+}
@@ -0,0 +1,126 @@
+/*
+Copyright 2026 agent
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package cycronix.ctlib;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * CloudTurbine utility class:  immutable, interned path node of the CT time hierarchy
+ * (source / segment / block / point / channel, and zip-entries under their zip file).
+ * Each distinct (parent, name) exists once, so index entries of every channel in a block share
+ * the block (and zip) nodes, and channel names are shared across blocks.
+ * Unused nodes are garbage collected (weak intern table).
+ * <p>
+ * @author agent
+ * @version 2026/10/19
+ *
+*/
+
+final class CTnode {
+
+	private final CTnode parent;				// null at top
+	private final String name;
+	private final char sep;						// separator preceding name (as in original path)
+	private final int hash;
+
+	private static final Map<CTnode, WeakReference<CTnode>> nodes = new WeakHashMap<CTnode, WeakReference<CTnode>>();
+	private static final Map<String, WeakReference<String>> names = new WeakHashMap<String, WeakReference<String>>();	// e.g. channel names
+
+	private CTnode(CTnode parent, String name, char sep) {
+		this.parent = parent;
+		this.name = name;
+		this.sep = sep;
+		this.hash = 31 * (31 * System.identityHashCode(parent) + name.hashCode()) + sep;
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	/**
+	 * Interned node of path (split at '/' and File.separator)
+	 * @param path file path
+	 * @return node, null if path is null
+	 */
+	static CTnode of(String path) {
+		if(path == null) return null;
+		CTnode node = null;
+		char sep = 0;
+		int from = 0;
+		for(int i=0; i<path.length(); i++) {
+			char c = path.charAt(i);
+			if(c != '/' && c != File.separatorChar) continue;
+			node = intern(node, path.substring(from, i), sep);
+			sep = c;
+			from = i+1;
+		}
+		return intern(node, path.substring(from), sep);
+	}
+
+	private static CTnode intern(CTnode parent, String name, char sep) {
+		CTnode key = new CTnode(parent, name, sep);
+		synchronized(nodes) {
+			WeakReference<CTnode> ref = nodes.get(key);
+			CTnode node = (ref == null) ? null : ref.get();
+			if(node != null) return node;
+			WeakReference<String> nref = names.get(name);
+			String n = (nref == null) ? null : nref.get();
+			if(n == null) names.put(name, new WeakReference<String>(name));
+			else		  key = new CTnode(parent, n, sep);			// shared name
+			nodes.put(key, new WeakReference<CTnode>(key));
+			return key;
+		}
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	/**
+	 * Full path (as given to of)
+	 * @return path
+	 */
+	String path() {
+		return append(new StringBuilder()).toString();
+	}
+
+	/**
+	 * Append full path
+	 * @param sb destination
+	 * @return sb
+	 */
+	StringBuilder append(StringBuilder sb) {
+		if(parent != null) parent.append(sb).append(sep);
+		return sb.append(name);
+	}
+
+	/**
+	 * Last path element
+	 * @return name
+	 */
+	String getName() 		{ return name; }
+
+	@Override
+	public boolean equals(Object o) {
+		if(!(o instanceof CTnode)) return false;
+		CTnode n = (CTnode)o;
+		return parent == n.parent && sep == n.sep && name.equals(n.name);
+	}
+
+	@Override
+	public int hashCode() 	{ return hash; }
+
+	@Override
+	public String toString() { return path(); }
+}
@@ -0,0 +1,214 @@
+/*
+Copyright 2026 agent
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package cycronix.ctlib;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import cycronix.ctlib.CTcache.TimeFolder;
+
+/**
+ * CloudTurbine utility class:  read-ahead for live ("after", "newest") polling clients.
+ * A channel polled at the newest data a few times in a row is "live".  While any channel of a source is live,
+ * the source index is refreshed in the background at about half the poll interval, and new index entries
+ * of live channels are read into the DataCache as soon as they are seen, so the next poll is served from memory.
+ * Read-ahead stops when polls stop.  All background work runs on one low-priority daemon thread.
+ * <p>
+ * @author agent
+ * @version 2026/10/19
+ *
+*/
+
+class CTprefetch {
+
+	private static final int LIVE_POLLS = 3;				// consecutive polls to be live
+	private static final long MAX_POLL_GAP = 10000;			// msec between polls to count as consecutive
+	private static final int MAX_IDLE = 10;					// poll intervals without a poll to stop read-ahead
+	private static final long MIN_REFRESH = 50;				// msec, index refresh interval limits
+	private static final long MAX_REFRESH = 5000;
+	private static final int MAX_ENTRIES = 16;				// max new entries read ahead per channel per refresh
+
+	private final CTcache ctcache;
+	private final Map<String, Chan> chans = new HashMap<String, Chan>();		// by channel key
+	private final Map<String, Object> sources = new HashMap<String, Object>();		// sources with a scheduled refresh (token)
+
+	private static ScheduledThreadPoolExecutor prefetchThread = null;
+
+	// poll state per channel
+	private static class Chan {
+		final String sname;
+		int npoll = 0;				// consecutive polls
+		long lastPoll = 0;			// msec
+		long interval = 0;			// poll interval (msec, smoothed)
+		double lastTime = 0.;		// newest entry time read (or read ahead)
+		Chan(String sname) { this.sname = sname; }
+		boolean live() 	{ return npoll >= LIVE_POLLS; }
+	}
+
+	CTprefetch(CTcache ctcache) {
+		this.ctcache = ctcache;
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	/**
+	 * Note poll of channel at newest data ("after", "newest" fetch)
+	 * @param sname source key (as CTcache.updateIndices)
+	 * @param chanKey channel key (as CTcache.fileListByChan)
+	 * @param newTime newest entry time being read
+	 */
+	synchronized void poll(String sname, String chanKey, double newTime) {
+		long now = System.currentTimeMillis();
+		Chan c = chans.get(chanKey);
+		if(c == null) {
+			c = new Chan(sname);
+			chans.put(chanKey, c);
+		}
+		long dt = now - c.lastPoll;
+		if(c.lastPoll > 0 && dt < MAX_POLL_GAP) {
+			c.interval = (c.interval == 0) ? dt : (3*c.interval + dt) / 4;
+			c.npoll++;
+		}
+		else c.npoll = 1;
+		c.lastPoll = now;
+		if(newTime > c.lastTime) c.lastTime = newTime;
+
+		if(c.live() && !sources.containsKey(sname)) {
+			Object token = new Object();
+			sources.put(sname, token);
+			schedule(sname, token, refreshInterval(sname));
+		}
+	}
+
+	/**
+	 * Index of source was updated:  read ahead new entries of its live channels (in background)
+	 * @param sname source key
+	 */
+	void indexUpdated(final String sname) {
+		synchronized(this) {
+			if(!sources.containsKey(sname)) return;
+		}
+		executor().execute(new Runnable() {
+			public void run() { readAhead(sname); }
+		});
+	}
+
+	/**
+	 * Stop read-ahead, forget poll state
+	 */
+	synchronized void clear() {
+		chans.clear();
+		sources.clear();				// scheduled refreshes stop on next run
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// refresh:  update source index and read ahead, re-schedule while live
+
+	private void schedule(final String sname, final Object token, long delay) {
+		executor().schedule(new Runnable() {
+			public void run() { refresh(sname, token); }
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	private void refresh(String sname, Object token) {
+		long delay;
+		synchronized(this) {
+			if(sources.get(sname) != token) return;			// cleared (or superseded)
+			delay = refreshInterval(sname);
+			if(delay <= 0) {						// polls stopped
+				sources.remove(sname);
+				CTinfo.debugPrint("CTprefetch stop: "+sname);
+				return;
+			}
+		}
+		try {
+			ctcache.updateIndices(sname);
+			readAhead(sname);
+		} catch(Exception e) {
+			CTinfo.debugPrint("CTprefetch refresh error: "+sname+", "+e);
+		}
+		schedule(sname, token, delay);
+	}
+
+	// half the shortest live poll interval of source;  0 if no live channel polled recently (drop idle channels)
+	private synchronized long refreshInterval(String sname) {
+		long now = System.currentTimeMillis();
+		long interval = 0;
+		Iterator<Map.Entry<String, Chan>> itr = chans.entrySet().iterator();
+		while(itr.hasNext()) {
+			Chan c = itr.next().getValue();
+			if(!c.sname.equals(sname)) continue;
+			long maxIdle = Math.max(MAX_POLL_GAP, MAX_IDLE * c.interval);
+			if((now - c.lastPoll) > maxIdle) { itr.remove(); continue; }
+			if(c.live() && (interval == 0 || c.interval < interval)) interval = c.interval;
+		}
+		if(interval == 0) return 0;
+		return Math.max(MIN_REFRESH, Math.min(MAX_REFRESH, interval / 2));
+	}
+
+	// read new index entries of live channels of source into DataCache
+	private void readAhead(String sname) {
+		Map<String, Double> todo = new HashMap<String, Double>();
+		synchronized(this) {
+			for(Map.Entry<String, Chan> e:chans.entrySet()) {
+				Chan c = e.getValue();
+				if(c.live() && c.sname.equals(sname)) todo.put(e.getKey(), c.lastTime);
+			}
+		}
+
+		for(Map.Entry<String, Double> e:todo.entrySet()) {
+			TimeFolder[] list = ctcache.fileListByChan.get(e.getKey());		// snapshot
+			if(list == null || list.length == 0) continue;
+			double lastTime = e.getValue();
+			int i = list.length;
+			while(i > 0 && list[i-1].getTime() > lastTime && (list.length-i) < MAX_ENTRIES) i--;
+			for(; i<list.length; i++) {
+				TimeFolder tf = list[i];
+				try {
+					CTFile file = tf.getCTFile();
+					if(file != null && file.isFile()) file.read();			// read caches it
+				} catch(Exception ex) {
+					CTinfo.debugPrint("CTprefetch read error: "+ex);		// e.g. trimmed
+				}
+				synchronized(this) {
+					Chan c = chans.get(e.getKey());
+					if(c != null && tf.getTime() > c.lastTime) c.lastTime = tf.getTime();
+				}
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// shared background thread
+
+	private static synchronized ScheduledThreadPoolExecutor executor() {
+		if(prefetchThread == null) {
+			prefetchThread = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "CTreader-prefetch");
+					t.setDaemon(true);
+					t.setPriority(Thread.MIN_PRIORITY);
+					return t;
+				}
+			});
+		}
+		return prefetchThread;
+	}
+}
@@ -18,14 +18,27 @@ package cycronix.ctlib;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.FileVisitOption;
+import java.nio.file.WatchKey;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import cycronix.ctlib.CTcache.TimeFolder;
 import java.nio.file.attribute.BasicFileAttributes;
@@ -47,11 +60,19 @@ import java.nio.file.attribute.BasicFileAttributes;
 //---------------------------------------------------------------------------------	
 
 public class CTreader {
-	private static String rootFolder = null;
+	private String rootFolder = null;						// root folder of sources (per reader)
 	private CTcrypto ctcrypto=null;		// optional encryption class
+	private long decryptCacheSize = 0;	// decrypted-data cache budget (bytes), 0 for none
 	private static boolean readProfile = false;
-	private CTcache CTcache;								// one cache per CTreader
-	private boolean readError = false;						// flag refresh cache
+	private CTcache ctcache;								// one cache per CTreader
+	private boolean parallelFetch = true;					// multi-channel getDataMap fetch concurrently
+	private boolean rangeRead = true;						// read only needed words of packed blocks
+	private boolean swapFlag = false;						// byte order for server-side data reduction
+	private boolean readAhead = true;						// prefetch new blocks for live ("after", "newest") polling
+	private CTprefetch prefetch;							// live polling read-ahead (per CTcache)
+	private CTwatcher watcher = null;						// subscriptions (created on first subscribe)
+	private final CTcatalog catalog = new CTcatalog();		// cached source list
+	private String mbeanName = null;						// registered JMX MBean (opt-in)
 
 //---------------------------------------------------------------------------------	
  // constructor for CTread.get() method
@@ -61,7 +82,8 @@ public class CTreader {
 	public CTreader() {
 		// Use the default root folder
 		rootFolder = "CTdata";
-		CTcache = new CTcache(rootFolder);
+		ctcache = new CTcache(rootFolder);
+		prefetch = new CTprefetch(ctcache);
 	}
 	
 	/**
@@ -70,7 +92,8 @@ public class CTreader {
 	 */
 	public CTreader(String fname) {
 		rootFolder = new String(fname);
-		CTcache = new CTcache(rootFolder);
+		ctcache = new CTcache(rootFolder);
+		prefetch = new CTprefetch(ctcache);
 	}
 
 	/**
@@ -101,8 +124,143 @@ public class CTreader {
 	}
 	
 	boolean timeOnly=false;
-	public void setTimeOnly(boolean tflag) {		// clumsy...  
-		timeOnly = tflag;							// doesn't work for blockdata where time is derived from block-interval/points
+	/**
+	 * Set time-only fetch:  point times without data, from the index and block sizes where possible
+	 * (intact and packed binary types).  Numeric text (CSV), audio.wav and encrypted blocks are still read.
+	 * Default for getData/getDataMap calls without a timeOnly argument;  a CTreader shared by concurrent
+	 * requests should pass timeOnly per call instead.
+	 * @param tflag true for time-only
+	 */
+	public void setTimeOnly(boolean tflag) {
+		timeOnly = tflag;
+	}
+	
+	/**
+	 * Set memory budget for cached file data (shared by all CTreaders)
+	 * @param maxBytes max bytes of file data held in cache
+	 */
+	public void setCacheSize(long maxBytes) {
+		CTcache.setDataCacheSize(maxBytes);
+	}
+	
+	/**
+	 * Set max number of zip files held open for reading (shared by all CTreaders)
+	 * @param maxOpen max open zip files
+	 */
+	public void setZipPoolSize(int maxOpen) {
+		CTcache.setZipPoolSize(maxOpen);
+	}
+	
+	/**
+	 * Set whether zip files are memory-mapped for reading (default true, except Windows where mapped files block deletion)
+	 * @param mmap true to memory-map zip files
+	 */
+	public void setMemoryMapZip(boolean mmap) {
+		CTzipFile.setMemoryMap(mmap);
+	}
+	
+	/**
+	 * Set whether multi-channel getDataMap fetches channels concurrently (default true)
+	 * @param pflag true for parallel fetch
+	 */
+	public void setParallelFetch(boolean pflag) {
+		parallelFetch = pflag;
+	}
+	
+	/**
+	 * Set word swap for data reduced in CTreader (downsample, aggregate, join), as CTdata.setSwap()
+	 * @param swap true: BIG_ENDIAN, false: LITTLE_ENDIAN (default)
+	 */
+	public void setSwap(boolean swap) {
+		swapFlag = swap;
+	}
+	
+	/**
+	 * Set read-ahead for live polling (default true):  channels fetched repeatedly with "after" or "newest" mode
+	 * have new blocks read into the data cache in the background as soon as they are indexed
+	 * @param rflag true for read-ahead
+	 */
+	public void setReadAhead(boolean rflag) {
+		readAhead = rflag;
+		if(!readAhead) prefetch.clear();
+	}
+	
+	// enable/disable partial reads of packed blocks (for test/compare)
+	void setRangeRead(boolean rflag) {
+		rangeRead = rflag;
+	}
+	
+	/**
+	 * Get data cache statistics
+	 * @return summary of entries, bytes, hits, misses, evictions and rejected entries
+	 */
+	public String getCacheStats() {
+		String stats = CTcache.DataCache.toString()+", "+CTcache.ZipFilePool;
+		if(ctcrypto != null && ctcrypto.plainCacheStats() != null) stats += ", decrypted: "+ctcrypto.plainCacheStats();
+		return stats;
+	}
+
+	/**
+	 * Get reader metrics:  index size of this reader, plus JVM-wide cache statistics, counters and
+	 * latency histograms (count, mean, p50, p99, max;  microseconds) of index build/update, reads by channel type,
+	 * decrypt and inflate (see CTstats)
+	 * @return metrics by name, sorted
+	 */
+	public Map<String, Number> getMetrics() {
+		Map<String, Number> m = CTstats.snapshot();
+		long[] isize = indexSize();
+		m.put("index.channels", isize[0]);
+		m.put("index.entries", isize[1]);
+		cacheMetrics(m, "datacache", CTcache.DataCache);
+		m.put("zipmapcache.size", CTcache.ZipMapCache.size());
+		m.put("zipfilepool.open", CTcache.ZipFilePool.size());
+		m.put("zipfilepool.hits", CTcache.ZipFilePool.hitCount());
+		m.put("zipfilepool.misses", CTcache.ZipFilePool.missCount());
+		m.put("zipfilepool.evictions", CTcache.ZipFilePool.evictionCount());
+		m.put("zipfilepool.memory", CTcache.ZipFilePool.memoryBytes());
+		if(ctcrypto != null && ctcrypto.plainCache() != null) cacheMetrics(m, "decryptcache", ctcrypto.plainCache());
+		return m;
+	}
+
+	// index size {channels, entries}
+	long[] indexSize() {
+		return ctcache.indexSize();
+	}
+
+	private static void cacheMetrics(Map<String, Number> m, String name, CTbyteCache cache) {
+		m.put(name+".entries", cache.size());
+		m.put(name+".bytes", cache.bytes());
+		m.put(name+".maxbytes", cache.getMaxBytes());
+		m.put(name+".hits", cache.hitCount());
+		m.put(name+".misses", cache.missCount());
+		m.put(name+".hitrate", cache.hitRate());
+		m.put(name+".evictions", cache.evictionCount());
+		m.put(name+".rejects", cache.rejectCount());
+	}
+
+	/**
+	 * Register JMX MBean for getMetrics (opt-in), named cycronix.ctlib:type=CTreader,name="rootFolder"
+	 * @throws Exception if JMX is not available or registration fails
+	 */
+	public synchronized void registerMBean() throws Exception {
+		if(mbeanName == null) mbeanName = CTmbean.register(this);
+	}
+
+	/**
+	 * Unregister JMX MBean of this reader
+	 */
+	public synchronized void unregisterMBean() {
+		if(mbeanName != null) CTmbean.unregister(mbeanName);
+		mbeanName = null;
+	}
+	
+	/**
+	 * Release resources held by this reader (folder watches of listSources, JMX MBean).
+	 * Call before dropping a reader that is replaced by another;  a closed reader still works, re-acquiring as needed.
+	 */
+	public void close() {
+		catalog.close();
+		unregisterMBean();
 	}
 	
 	/**
@@ -112,6 +270,7 @@ public class CTreader {
 	 */
 	public void setPassword(String password) throws Exception {
 		ctcrypto = new CTcrypto(password);
+		ctcrypto.setPlainCacheSize(decryptCacheSize);
 	}
 	
 	/**
@@ -122,6 +281,18 @@ public class CTreader {
 	 */
 	public void setPassword(String password, boolean optionalDecrypt) throws Exception {
 		ctcrypto = new CTcrypto(password, optionalDecrypt);
+		ctcrypto.setPlainCacheSize(decryptCacheSize);
+	}
+	
+	/**
+	 * Set size of decrypted-data cache for encrypted sources (see setPassword).  Off by default.
+	 * Repeated reads of cached files skip decryption, but the cache holds plaintext in memory:  enable deliberately.
+	 * This memory budget is separate from (in addition to) the raw data cache (setDataCacheSize).
+	 * @param maxBytes max total bytes of cached plaintext, 0 for no cache
+	 */
+	public void setDecryptCacheSize(long maxBytes) {
+		decryptCacheSize = Math.max(0, maxBytes);
+		if(ctcrypto != null) ctcrypto.setPlainCacheSize(decryptCacheSize);
 	}
 	
 //---------------------------------------------------------------------------------	   
@@ -140,6 +311,21 @@ public class CTreader {
 	 * @throws Exception on error
 	 */
 	public CTdata getData(String source, String chan, double tget, double tdur, String tmode) throws Exception {
+		return getData(source, chan, tget, tdur, tmode, timeOnly);
+	}
+	
+	/**
+	 * Get CT data, time-only or not for this call (see setTimeOnly)
+	 * @param source Source folder to read CT files.  e.g. "mysource"
+	 * @param chan Channel name to get, e.g. "chan1"
+	 * @param tget Time to get (seconds since epoch)
+	 * @param tdur Duration to get (seconds)
+	 * @param tmode Fetch mode, options: "absolute", "oldest", "newest", "after", "prev"
+	 * @param timeOnly true for point times without data where possible
+	 * @return CTdata object containing data
+	 * @throws Exception on error
+	 */
+	public CTdata getData(String source, String chan, double tget, double tdur, String tmode, boolean timeOnly) throws Exception {
 		CTmap ctmap= new CTmap(chan);
 //		String sourceFolder;
 //		if(source == null) 	sourceFolder = rootFolder;
@@ -147,8 +333,11 @@ public class CTreader {
 
 		try {
 //			ctmap = getDataMap(ctmap, sourceFolder, tget, tdur, tmode);		// time units = seconds
-			ctmap = getDataMap(ctmap, source, tget, tdur, tmode);		// time units = seconds
+			ctmap = getDataMap(ctmap, source, tget, tdur, tmode, timeOnly);		// time units = seconds
 		} 
+		catch(CancellationException e) {
+			throw e;
+		}
 		catch(Exception e) {
 			e.printStackTrace();
 			System.err.println("CTreader/getData oops, exception: "+e+", ctmap: "+ctmap);
@@ -160,6 +349,150 @@ public class CTreader {
 		return tdata;	
 	}
 		
+	/**
+	 * Get CT data downsampled to at most maxPoints points, streaming through the data once (see CTdownsample).
+	 * Non-numeric channels, zero duration and maxPoints&lt;=0 requests return full getData results.
+	 * @param source Source folder to read CT files.  e.g. "mysource"
+	 * @param chan Channel name to get, e.g. "chan1"
+	 * @param tget Time to get (seconds since epoch)
+	 * @param tdur Duration to get (seconds)
+	 * @param tmode Fetch mode, options: "absolute", "oldest", "newest", "after"
+	 * @param maxPoints max number of points to return
+	 * @param agg downsample method:  "minmax" (default), "lttb", "mean"
+	 * @return CTdata object containing data
+	 * @throws Exception on error
+	 */
+	public CTdata getData(String source, String chan, double tget, double tdur, String tmode, int maxPoints, String agg) throws Exception {
+		return getData(source, chan, tget, tdur, tmode, maxPoints, agg, timeOnly);
+	}
+	
+	/**
+	 * Get CT data downsampled to at most maxPoints points (see getData), time-only or not for this call.
+	 * Time-only requests are not downsampled.
+	 * @param source Source folder to read CT files.  e.g. "mysource"
+	 * @param chan Channel name to get, e.g. "chan1"
+	 * @param tget Time to get (seconds since epoch)
+	 * @param tdur Duration to get (seconds)
+	 * @param tmode Fetch mode, options: "absolute", "oldest", "newest", "after"
+	 * @param maxPoints max number of points to return
+	 * @param agg downsample method:  "minmax" (default), "lttb", "mean"
+	 * @param timeOnly true for point times without data where possible
+	 * @return CTdata object containing data
+	 * @throws Exception on error
+	 */
+	public CTdata getData(String source, String chan, double tget, double tdur, String tmode, int maxPoints, String agg, boolean timeOnly) throws Exception {
+		double[] trange = null;
+		if(maxPoints > 0 && tdur > 0. && !timeOnly && CTdownsample.isNumeric(chan)) trange = timeRange(source, chan, tget, tdur, tmode, true);
+		if(trange == null) return getData(source, chan, tget, tdur, tmode, timeOnly);
+		
+		CTdownsample ds = new CTdownsample(chan, trange[0], trange[1], maxPoints, agg);
+		ds.setSwap(swapFlag);
+		CTcursor cursor = cursor(source, chan, trange[0], trange[1]);
+		try {
+			while(cursor.hasNext()) ds.add(cursor.next());
+		} finally {
+			cursor.close();
+		}
+		return ds.getData();
+	}
+	
+	/**
+	 * Get fixed-window statistics (count, min, max, mean) of numeric channel data, computed in one streaming pass.
+	 * Windows are aligned to multiples of window size since epoch.
+	 * @param source Source folder to read CT files.  e.g. "mysource"
+	 * @param chan Channel name to get, e.g. "chan1"
+	 * @param tget Time to get (seconds since epoch)
+	 * @param tdur Duration to get (seconds)
+	 * @param tmode Fetch mode, options: "absolute", "oldest", "newest", "after"
+	 * @param window window size (seconds)
+	 * @return CTaggregate with columnar per-window results, null if channel not numeric or not found
+	 * @throws Exception on error
+	 */
+	public CTaggregate getAggregate(String source, String chan, double tget, double tdur, String tmode, double window) throws Exception {
+		if(!(window > 0.) || !(tdur > 0.) || !CTdownsample.isNumeric(chan)) return null;
+		double[] trange = timeRange(source, chan, tget, tdur, tmode, false);
+		if(trange == null) return null;
+		
+		CTaggregate ca = new CTaggregate(chan, window);
+		ca.setSwap(swapFlag);
+		CTcursor cursor = cursor(source, chan, trange[0], trange[1]);
+		try {
+			while(cursor.hasNext()) ca.add(cursor.next());
+		} finally {
+			cursor.close();
+		}
+		return ca;
+	}
+	
+	/**
+	 * Get time-aligned merge-join of multiple channels (see CTjoin).  
+	 * Fetch mode is applied over all channels, e.g. "oldest" starts at oldest data of any channel.
+	 * @param source Source folder to read CT files.  e.g. "mysource"
+	 * @param chans Channel names
+	 * @param tget Time to get (seconds since epoch)
+	 * @param tdur Duration to get (seconds)
+	 * @param tmode Fetch mode, options: "absolute", "oldest", "newest", "after"
+	 * @param policy join policy:  "exact", "previous", "nearest", "linear"
+	 * @return CTjoin row reader, null if no data
+	 * @throws Exception on error (e.g. unknown policy)
+	 */
+	public CTjoin join(String source, ArrayList<String> chans, double tget, double tdur, String tmode, String policy) throws Exception {
+		int ipolicy = CTjoin.policy(policy);
+		if(ipolicy < 0) throw new IllegalArgumentException("CTreader.join, unknown policy: "+policy);
+		
+		double start = Double.MAX_VALUE, end = -Double.MAX_VALUE;
+		for(String chan:chans) {
+			double[] trange = timeRange(source, chan, tget, tdur, tmode, true);
+			if(trange == null) continue;
+			start = Math.min(start, trange[0]);
+			end = Math.max(end, trange[1]);
+		}
+		if(end < start) return null;
+		
+		ArrayList<CTcursor> cursors = new ArrayList<CTcursor>();
+		for(String chan:chans) cursors.add(cursor(source, chan, start, end));
+		CTjoin ctj = new CTjoin(chans, cursors, start, end, ipolicy);
+		ctj.setSwap(swapFlag);
+		return ctj;
+	}
+	
+	// newest index time of channel, as used by "newest" and "after" fetch modes (0 if none)
+	double indexNewTime(String source, String chan) {
+		double[] trange = timeRange(source, chan, 0., 0., "newest", false);
+		return (trange == null) ? 0. : trange[0];
+	}
+	
+	// timeRange:  absolute start,end time of getData request per fetch mode (same as addChanToDataMap), null if n/a.
+	// clamp:  trim to oldest/newest data, e.g. to spread downsample buckets over actual data
+	private double[] timeRange(String source, String chan, double tget, double tdur, String tmode, boolean clamp) {
+		String sourceFolder;
+		if(source == null) 	sourceFolder = rootFolder;
+		else				sourceFolder = rootFolder+File.separator+source;
+		String chanKey = ctcache.chan2key(sourceFolder + File.separator + chan);
+		ctcache.updateIndices(chanKey.replace("/"+chan, ""));
+		TimeFolder[] listOfFiles = ctcache.fileListByChan.get(chanKey);
+		if(listOfFiles == null || listOfFiles.length < 1) return null;
+		
+		double start;
+		if(tmode.equals("absolute"))	start = tget;
+		else if(tmode.equals("oldest"))	start = listOfFiles[0].getCTFile().baseTime();
+		else if(tmode.equals("newest"))	start = newTime(listOfFiles) - tdur - tget;
+		else if(tmode.equals("after")) {
+			double newtime = newTime(listOfFiles);
+			start = tget;
+			if((newtime - tget) > tdur) start = newtime - tdur;
+			start += 0.000001;
+		}
+		else return null;
+		
+		double end = start + tdur;
+		if(clamp) {
+			start = Math.max(start, listOfFiles[0].getCTFile().baseTime());		// no data beyond index limits
+			end = Math.min(end, listOfFiles[listOfFiles.length-1].getCTFile().fileTime());
+		}
+		return new double[] { start, end };
+	}
+	
 //---------------------------------------------------------------------------------	
 // timeLimits:  get oldest, newest time limits in one-pass from cache
 	/**
@@ -178,11 +511,11 @@ public class CTreader {
 			return tlimits;
 		}
 
-		String thisChanKey = CTcache.chan2key(sourceFolder + File.separator + chan);			// this is single channel function
-		TimeFolder[] listOfFiles = CTcache.fileListByChan.get(thisChanKey);				// get existing cached limits
+		String thisChanKey = ctcache.chan2key(sourceFolder + File.separator + chan);			// this is single channel function
+		TimeFolder[] listOfFiles = ctcache.fileListByChan.get(thisChanKey);				// get existing cached limits
 		if(listOfFiles == null || listOfFiles.length==0) {
-			CTcache.buildIndices(sourceFolder, 0);
-			listOfFiles = CTcache.fileListByChan.get(thisChanKey);				// try again after rebuilding indexes
+			ctcache.buildIndices(sourceFolder, 0);
+			listOfFiles = ctcache.fileListByChan.get(thisChanKey);				// try again after rebuilding indexes
             if(listOfFiles == null) return tlimits;                     // avoid null ptr exception if empty (mjm 3/24/22)
 //			listOfFiles = flatFileList(rootFolder + File.separator + sourceFolder, new CTmap(chan), thisChanKey, true);
 		}
@@ -401,7 +734,7 @@ public class CTreader {
 			for(; j>=0; j--) {
 				if(files[j].isTFILE()) ftime = files[j].fileTime();		// skip recursion, use the file-as-folder for TFILE
 //				else if(files[j].isDirectory()) ftime = newTime(new CTFile[] {files[j]});	// recurse
-				else if(files[j].isDirectory()) ftime = newTime(new TimeFolder[] { CTcache.newTimeFolder(files[j],files[j].fileTime())});	// recurse
+				else if(files[j].isDirectory()) ftime = newTime(new TimeFolder[] { ctcache.newTimeFolder(files[j],files[j].fileTime())});	// recurse
 
 				else {
 					ftime = files[j].fileTime();		// at this point this is a file not a dir
@@ -438,13 +771,13 @@ public class CTreader {
 		
 		if(!fastSearch) {
 //			System.err.println("listChans via CTcache!");
-			return CTcache.listChans(sfolder);		// alternate: get chanList from Index
+			return ctcache.listChans(sfolder);		// alternate: get chanList from Index
 		}
 		
 //		long startTime = System.nanoTime();
 
 //		if(sfolder.indexOf(File.separator)<0) {
-		if(!sfolder.startsWith(rootFolder)) {
+		if(!sfolder.startsWith(rootFolder + File.separator)) {
 			sfolder = rootFolder + File.separator + sfolder;		// auto-fullpath
 //			CTinfo.debugPrint("listChans: adding rootfolder to sfolder: "+sfolder);
 		}
@@ -576,17 +909,46 @@ public class CTreader {
 //	}
 	
 	/**
-	 * List sources with recursive search
+	 * List sources with recursive search.  
+	 * The list is cached until a folder is added or removed above the sources (see getSourcesVersion)
 	 * @return list of sources
 	 * @throws IOException on error
 	 */
 	public ArrayList<String> listSources() throws IOException {
+		synchronized(catalog) {
+			if(!catalog.isValid(rootFolder)) {
+				catalog.begin();
+				catalog.end(rootFolder, walkSources());
+			}
+			return catalog.get();
+		}
+	}
+	
+	/**
+	 * Version of source list, changes when listSources result changes.  For client cache revalidation (e.g. HTTP ETag)
+	 * @return version number
+	 */
+	public long getSourcesVersion() {
+		return catalog.getVersion();
+	}
+	
+	/**
+	 * Version of channel lists, changes when channels are added to or removed from any source index (see listChans)
+	 * @return version number
+	 */
+	public long getChansVersion() {
+		return ctcache.getChanVersion();
+	}
+	
+	// walk folders for sources, watching non-source folders (catalog)
+	private ArrayList<String> walkSources() throws IOException {
 		final ArrayList<String> SourceList = new ArrayList<String>();		// for registration
 		final Path rootPath = new CTFile(rootFolder).toPath();
 		final int nroot = rootPath.getNameCount();
 		EnumSet<FileVisitOption> opts = EnumSet.of(FileVisitOption.FOLLOW_LINKS);	// follow symbolic links
 
 		// walk folders under rootPath (ignore root level files)
+		catalog.watch(rootPath);
 		File listFile[] = rootPath.toFile().listFiles();
 		if(listFile == null) {
 			return new ArrayList<String>();		// return empty list
@@ -609,6 +971,7 @@ public class CTreader {
 					public FileVisitResult preVisitDirectory(final Path dir, BasicFileAttributes attrs)
 							throws IOException
 					{
+						WatchKey key = catalog.watch(dir);			// before listing
 						for(File file:dir.toFile().listFiles()) {
 							//							if(file.isFile()) {			// folder with at least one file is a candidate source
 //							if((new CTFile(file.getName()).fileTime())>0.) {		// folder with a "timed" folder/file is a candidate source
@@ -622,6 +985,7 @@ public class CTreader {
 									SourceList.add(thisPath);		// only add if not a time-number name
 								}
 
+								catalog.unwatch(key);				// source:  its own changes don't alter list
 								return FileVisitResult.SKIP_SUBTREE;
 							} 
 						}
@@ -649,15 +1013,35 @@ public class CTreader {
 	 * @throws Exception on error
 	 */
 	public CTmap getDataMap(CTmap ctmap, String source, double getftime, double duration, String rmode) throws Exception {
+		return getDataMap(ctmap, source, getftime, duration, rmode, timeOnly);
+	}
+	
+	/**
+	 * get CTmap of multiple channels (see getDataMap), time-only or not for this call
+	 * 
+	 * @param ctmap CTmap with channel names, will hold CTdata results
+	 * @param source relative path to data source
+	 * @param getftime start time of fetch (s)
+	 * @param duration duraton of fetch (s)
+	 * @param rmode fetch-mode ("newest", "absolute", "oldest")
+	 * @param timeOnly true for point times without data where possible
+	 * @return Channel map with data
+	 * @throws Exception on error
+	 */
+	public CTmap getDataMap(CTmap ctmap, String source, double getftime, double duration, String rmode, boolean timeOnly) throws Exception {
 		// arg source is relative path source, sourceFolder is abs path
 		String sourceFolder;
 		if(source == null) 	sourceFolder = rootFolder;
 		else				sourceFolder = rootFolder+File.separator+source;
 		
+		if(parallelFetch && ctmap.size() > 1 && !ctmap.hasData()) 
+			return getDataMapParallel(ctmap, sourceFolder, getftime, duration, rmode, timeOnly);
+		
 //		boolean firstChan = true;
 //		double refTime=0, refDuration=0;
+		Fetch fetch = new Fetch(timeOnly);
 		for(String chan : ctmap.keySet()) {
-			addChanToDataMap(ctmap, sourceFolder, chan, getftime, duration, rmode); 	// simply loop through all chans
+			addChanToDataMap(ctmap, sourceFolder, chan, getftime, duration, rmode, true, fetch); 	// simply loop through all chans
 
 			// if multi-chan request, get first chan, match other chans to its time-interval
 			// following logic dicey: if firstChan is single point, then adjusted duration=0, can change finite-duration to at-or-before logic
@@ -681,28 +1065,272 @@ public class CTreader {
 			}
 			*/
 		}
+		if(fetch.readError) CTinfo.debugPrint("getDataMap, skipped unreadable file(s): "+sourceFolder);
+		
+		return ctmap;
+	}
+	
+	//---------------------------------------------------------------------------------	
+	// getDataMapParallel:  fetch each channel concurrently into its own CTmap, then merge.
+	// index is updated once per source up front; open zip files are shared via CTcache.ZipFilePool
+	
+	private CTmap getDataMapParallel(final CTmap ctmap, final String sourceFolder, final double getftime, final double duration, final String rmode, final boolean timeOnly) throws Exception {
+		ArrayList<String> snames = new ArrayList<String>();
+		for(String chan : ctmap.keySet()) {
+			String sname = ctcache.chan2key(sourceFolder + File.separator + chan).replace("/"+chan, "");
+			if(!snames.contains(sname)) snames.add(sname);
+		}
+		for(String sname:snames) ctcache.updateIndices(sname);		// once, not per channel
+
+		ArrayList<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+		final CTfuture<?> request = CTfuture.current();				// async request (if any) follows to fetch threads
+		for(final String chan : ctmap.keySet()) {
+			futures.add(fetchExecutor().submit(new Callable<Boolean>() {
+				public Boolean call() throws Exception {				// returns read error state of this channel
+					CTfuture<?> prior = CTfuture.enter(request);
+					try {
+						Fetch fetch = new Fetch(timeOnly);
+						CTmap cm = addChanToDataMap(new CTmap(chan), sourceFolder, chan, getftime, duration, rmode, false, fetch);
+						if(cm != null) {
+							CTdata tdata = cm.get(chan);
+							if(tdata != null) synchronized(ctmap) { ctmap.add(chan, tdata); }
+						}
+						return fetch.readError;
+					} finally {
+						CTfuture.exit(prior);
+					}
+				}
+			}));
+		}
+
+		Exception error = null;
+		boolean readError = false;
+		for(Future<Boolean> f:futures) {						// wait for all, even on error
+			try { if(f.get()) readError = true; } 
+			catch(ExecutionException e) {
+				if(error == null) error = (e.getCause() instanceof Exception) ? (Exception)e.getCause() : e;
+			}
+		}
+		if(error != null) throw error;
+		if(readError) CTinfo.debugPrint("getDataMapParallel, skipped unreadable file(s): "+sourceFolder);
 		
 		return ctmap;
 	}
+
+	// shared bounded executor for parallel channel fetch.  idle threads time out;  callers run tasks themselves if the queue is full
+	private static ThreadPoolExecutor fetchPool = null;
+	
+	static synchronized ExecutorService fetchExecutor() {
+		if(fetchPool == null) {
+			int nthread = Math.max(2, Math.min(16, Runtime.getRuntime().availableProcessors()));
+			fetchPool = new ThreadPoolExecutor(nthread, nthread, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(1024), 
+					new ThreadFactory() {
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r, "CTreader-fetch");
+							t.setDaemon(true);
+							return t;
+						}
+					},
+					new ThreadPoolExecutor.CallerRunsPolicy());
+			fetchPool.allowCoreThreadTimeOut(true);
+		}
+		return fetchPool;
+	}
 	
 	//---------------------------------------------------------------------------------	
-	private CTmap addChanToDataMap(CTmap ctmap, String rootfolder, String chan, double getftime, double duration, String rmode) throws Exception {
-//		long startTime = System.nanoTime();	
+	// async reads:  requests run on a dedicated bounded I/O pool, callers don't block on disk/zip I/O.
+	// a full queue rejects (completes exceptionally) rather than running in the caller
+	
+	private static final int ASYNC_QUEUE = 1024;			// max queued async requests
+	private static ThreadPoolExecutor ioPool = null;
+	
+	private static synchronized ExecutorService ioExecutor() {
+		if(ioPool == null) {
+			int nthread = Math.max(4, Math.min(32, 2*Runtime.getRuntime().availableProcessors()));	// I/O bound
+			ioPool = new ThreadPoolExecutor(nthread, nthread, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(ASYNC_QUEUE), 
+					new ThreadFactory() {
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r, "CTreader-io");
+							t.setDaemon(true);
+							return t;
+						}
+					},
+					new ThreadPoolExecutor.AbortPolicy());
+			ioPool.allowCoreThreadTimeOut(true);
+		}
+		return ioPool;
+	}
+	
+	/**
+	 * Get CT data asynchronously (see getData).  Returns at once;  the read runs on a bounded I/O thread pool.
+	 * @param source Source folder to read CT files.  e.g. "mysource"
+	 * @param chan Channel name to get, e.g. "chan1"
+	 * @param tget Time to get (seconds since epoch)
+	 * @param tdur Duration to get (seconds)
+	 * @param tmode Fetch mode, options: "absolute", "oldest", "newest", "after", "prev"
+	 * @param timeout deadline (msec from now), 0 for none.  Past deadline the result is TimeoutException
+	 * @return CTfuture of CTdata;  cancel to stop the read
+	 */
+	public CTfuture<CTdata> getDataAsync(final String source, final String chan, final double tget, final double tdur, final String tmode, long timeout) {
+		return submitAsync(new Callable<CTdata>() {
+			public CTdata call() throws Exception { return getData(source, chan, tget, tdur, tmode); }
+		}, timeout);
+	}
+	
+	/**
+	 * Get CT data asynchronously, no deadline (see getDataAsync)
+	 * @param source Source folder to read CT files.  e.g. "mysource"
+	 * @param chan Channel name to get, e.g. "chan1"
+	 * @param tget Time to get (seconds since epoch)
+	 * @param tdur Duration to get (seconds)
+	 * @param tmode Fetch mode, options: "absolute", "oldest", "newest", "after", "prev"
+	 * @return CTfuture of CTdata
+	 */
+	public CTfuture<CTdata> getDataAsync(String source, String chan, double tget, double tdur, String tmode) {
+		return getDataAsync(source, chan, tget, tdur, tmode, 0);
+	}
+	
+	/**
+	 * Get CTmap of multiple channels asynchronously (see getDataMap)
+	 * @param ctmap CTmap with channel names, will hold CTdata results
+	 * @param source relative path to data source
+	 * @param getftime start time of fetch (s)
+	 * @param duration duraton of fetch (s)
+	 * @param rmode fetch-mode ("newest", "absolute", "oldest")
+	 * @param timeout deadline (msec from now), 0 for none
+	 * @return CTfuture of channel map with data
+	 */
+	public CTfuture<CTmap> getDataMapAsync(final CTmap ctmap, final String source, final double getftime, final double duration, final String rmode, long timeout) {
+		return submitAsync(new Callable<CTmap>() {
+			public CTmap call() throws Exception { return getDataMap(ctmap, source, getftime, duration, rmode); }
+		}, timeout);
+	}
+	
+	/**
+	 * Run any read request asynchronously on the CTreader I/O pool (e.g. listChans, getData with downsample)
+	 * @param request read request
+	 * @param timeout deadline (msec from now), 0 for none
+	 * @return CTfuture of request result
+	 */
+	public <V> CTfuture<V> submitAsync(Callable<V> request, long timeout) {
+		return CTfuture.submit(ioExecutor(), request, timeout);
+	}
+	
+	//---------------------------------------------------------------------------------	
+	/**
+	 * Get cursor over channel data from t0 to t1.  Data is read one chunk (zip file or folder of blocks) at a time, 
+	 * the next chunk prefetched in the background, so memory stays bounded for any time span.
+	 * Chunks in order make up the same points as getData(source, chan, t0, t1-t0, "absolute").
+	 * @param source Source folder, e.g. "mysource"
+	 * @param chan Channel name, e.g. "chan1"
+	 * @param t0 start time (sec), &lt;=0 for oldest
+	 * @param t1 end time (sec), &lt;=0 for newest
+	 * @return CTcursor iterator of CTdata chunks
+	 * @throws Exception on error
+	 */
+	public CTcursor cursor(String source, String chan, double t0, double t1) throws Exception {
+		String sourceFolder;
+		if(source == null) 	sourceFolder = rootFolder;
+		else				sourceFolder = rootFolder+File.separator+source;
+		
+		String chanKey = ctcache.chan2key(sourceFolder + File.separator + chan);
+		ctcache.updateIndices(chanKey.replace("/"+chan, ""));
+		TimeFolder[] listOfFiles = ctcache.fileListByChan.get(chanKey);		// snapshot, index updates replace the array
+		if(listOfFiles == null || listOfFiles.length < 1) return new CTcursor(this, chan, new TimeFolder[0], 0, 0., 0.);
+		
+		if(t0 <= 0.) t0 = listOfFiles[0].getCTFile().baseTime();
+		if(t1 <= 0.) t1 = Double.MAX_VALUE;
+		return new CTcursor(this, chan, listOfFiles, fileSearch(listOfFiles, t0), t0, t1);
+	}
+	
+	//---------------------------------------------------------------------------------	
+	/**
+	 * Subscribe to new data of source channels.  Data written after subscribe is pushed to the listener
+	 * as it is committed (filesystem notification plus index update), versus polling with "after" mode.
+	 * @param source Source folder, e.g. "mysource"
+	 * @param chanPattern channel names to match, with '*' and '?' wildcards, e.g. "*.f64";  null for all
+	 * @param listener receives new data (on subscription thread)
+	 * @return CTsubscription, close to stop.  Has queue and lag metrics.
+	 */
+	public CTsubscription subscribe(String source, String chanPattern, CTsubscription.Listener listener) {
+		return subscribe(source, chanPattern, listener, 1000);
+	}
+	
+	/**
+	 * Subscribe to new data of source channels (see subscribe)
+	 * @param source Source folder, e.g. "mysource"
+	 * @param chanPattern channel names to match, with '*' and '?' wildcards;  null for all
+	 * @param listener receives new data (on subscription thread)
+	 * @param maxQueue max chunks queued for a slow listener (oldest dropped)
+	 * @return CTsubscription, close to stop
+	 */
+	public CTsubscription subscribe(String source, String chanPattern, CTsubscription.Listener listener, int maxQueue) {
+		String sourceFolder;
+		if(source == null) 	sourceFolder = rootFolder;
+		else				sourceFolder = rootFolder+File.separator+source;
+		
+		synchronized(this) {
+			if(watcher == null) watcher = new CTwatcher(ctcache);
+		}
+		CTsubscription sub = new CTsubscription(this, watcher, ctcache.chan2key(sourceFolder), chanPattern, listener, maxQueue);
+		watcher.add(sub, new File(sourceFolder));
+		return sub;
+	}
+	
+	// readChunk:  read index entries ifirst..ilast of one channel (for CTcursor), trimmed to start..end.
+	// istart is first entry of the whole cursor, same range-read eligibility as addChanToDataMap
+	CTdata readChunk(String chan, TimeFolder[] listOfFiles, int istart, int ifirst, int ilast, double start, double end) throws Exception {
+		CTmap ctmap = new CTmap(chan);
+		Fetch fetch = new Fetch(false);								// cursors (downsample, aggregate, join) need the data
+		boolean rangeOK = rangeRead && end>start;
+		for(int i=ifirst; i<=ilast; i++) {
+			TimeFolder prior = (i>istart) ? listOfFiles[i-1] : null;
+			if(rangeOK && getFileRange(listOfFiles[i], prior, ctmap, start, end, fetch)) continue;
+			getFile(listOfFiles[i], ctmap, fetch);
+		}
+		ctmap.trim(chan, start, end-start, "absolute");
+		return ctmap.get(chan);
+	}
+	
+	//---------------------------------------------------------------------------------	
+	// per-call read options and state (one CTreader serves concurrent requests, so not in instance fields)
+	private static class Fetch {
+		final boolean timeOnly;				// point times without data where possible
+		boolean readError = false;			// a file could not be read (e.g. trimmed while reading), skipped
+		Fetch(boolean timeOnly) { this.timeOnly = timeOnly; }
+	}
+	
+	// timed by channel type
+	private CTmap addChanToDataMap(CTmap ctmap, String rootfolder, String chan, double getftime, double duration, String rmode, boolean updateIndex, Fetch fetch) throws Exception {
+		long startTime = System.nanoTime();
+		try {
+			return fetchChan(ctmap, rootfolder, chan, getftime, duration, rmode, updateIndex, fetch);
+		} finally {
+			CTstats.time(CTstats.readName(chan), startTime);
+		}
+	}
+
+	private CTmap fetchChan(CTmap ctmap, String rootfolder, String chan, double getftime, double duration, String rmode, boolean updateIndex, Fetch fetch) throws Exception {
 //		String thisChanKey = chan2key(rootfolder + File.separator + ctmap.getName(0));			// this is single channel function
-		String thisChanKey = CTcache.chan2key(rootfolder + File.separator + chan);			// this is single channel function
+		String thisChanKey = ctcache.chan2key(rootfolder + File.separator + chan);			// this is single channel function
 		
 		try {
 			// get updated list of folders
-//			TimeFolder[] oldList = CTcache.fileListByChan.get(thisChanKey);
+//			TimeFolder[] oldList = ctcache.fileListByChan.get(thisChanKey);
 //			boolean fileRefresh = false;
 //			if(oldList == null || oldList.length==0 || !rmode.equals("absolute") || (getftime+duration) > oldList[oldList.length-1].getTime()) fileRefresh = true;
 
 			TimeFolder[] listOfFiles = null;
 			//	listOfFiles = flatFileList(rootfolder, new CTmap(chan), thisChanKey, fileRefresh);  // old way mjm 12/14/20. single/simple call to buildIndices
 			String sname = thisChanKey.replace("/"+chan, "");
-			CTcache.updateIndices(sname);  	// efficient after-known-time update
-			listOfFiles = CTcache.fileListByChan.get(thisChanKey);
+			if(updateIndex) {
+				ctcache.updateIndices(sname);  	// efficient after-known-time update
+				if(readAhead) prefetch.indexUpdated(sname);		// other live channels of source
+			}
+			listOfFiles = ctcache.fileListByChan.get(thisChanKey);
 			if(listOfFiles == null || listOfFiles.length < 1) return ctmap;
+			if(readAhead && (rmode.equals("after") || rmode.equals("newest"))) 
+				prefetch.poll(sname, thisChanKey, listOfFiles[listOfFiles.length-1].getTime());
 					
 			if(rmode.equals("registration")) {				// handle registration
 				System.err.println("unexpected registration request!");
@@ -710,7 +1338,7 @@ public class CTreader {
 			}
 			else if(rmode.equals("oldest")) {				// convert relative to absolute time
 				getftime = listOfFiles[0].getCTFile().baseTime();
-//				getftime = CTcache.sourceOldTime(sname);
+//				getftime = ctcache.sourceOldTime(sname);
 				CTinfo.debugPrint("getDataMap, oldTime: "+getftime);
 				rmode = "absolute";
 			}
@@ -740,12 +1368,14 @@ public class CTreader {
 			
 			CTinfo.debugPrint("FOUND ftime: "+getftime+", index: "+ifound+", size: "+listOfFiles.length);
 			if(duration==0 && rmode.equals("absolute")) {
-				getFile(listOfFiles[ifound], ctmap);
+				getFile(listOfFiles[ifound], ctmap, fetch);
 			}
 			else {
 				int istart = ifound;
 				double endtime = getftime + duration;
 
+				boolean rangeOK = rangeRead && duration>0 && rmode.equals("absolute");
+				
 				// one-pass, gather list of candidate folders
 				for(int i=istart; i<listOfFiles.length; i++) {						// find range of eligible folders 
 					TimeFolder folder = listOfFiles[i];
@@ -754,9 +1384,13 @@ public class CTreader {
 						if(priorftime > endtime) break;							// done	
 					}
 					CTinfo.debugPrint("CTreader checking folder["+i+"]: "+folder.getCTFile().getPath()+", start: "+getftime+", end: "+endtime);
-					getFile(folder, ctmap);		// individual file
+					TimeFolder prior = (i>istart) ? listOfFiles[i-1] : null;
+					if(rangeOK && getFileRange(folder, prior, ctmap, getftime, endtime, fetch)) continue;		// partial packed block
+					getFile(folder, ctmap, fetch);		// individual file
 				}
 			}
+		} catch (CancellationException e) {
+			throw e;										// async request stopped, not an error
 		} catch (Exception e) {
 			e.printStackTrace();
 			throw e;
@@ -771,32 +1405,36 @@ public class CTreader {
 
 	//--------------------------------------------------------------------------------------------------------
 	// get data from CTFile
-	private long getFile(TimeFolder tfile, CTmap cm) throws Exception {
+	private long getFile(TimeFolder tfile, CTmap cm, Fetch fetch) throws Exception {
 		long hasdata = 0;
+		CTfuture.checkCancelled();					// async request stopped
 		CTFile file = tfile.getCTFile();
 		
 		if(file.isFile()) {
 			String fileName =  file.getName();
 			if(!cm.checkName(fileName)) return 0;		// not a match 
+			if(fetch.timeOnly && getFileTimes(file, fileName, cm, fetch)) return 0;		// no data read
 			byte[] data = null;
-			boolean getdata = !timeOnly || !fileName.toLowerCase().endsWith(".jpg");		// timeOnly only works for images at this point
-
-			if(getdata) {
+			if(ctcrypto != null) data = ctcrypto.getPlain(file.getMyPath());	// decrypted cache (opt-in)
+			if(data == null) {
 				try {
 					data = file.read();		// read the entire file in one chunk
 				} catch(Exception e) {
-					readError = true;
+					fetch.readError = true;
 				}
-			}
 
-			if(ctcrypto!=null &&  (data != null && data.length>0)) { 
-				try { data = ctcrypto.decrypt(data); } catch(Exception ee) {
-					System.err.println("WARNING:  could not decrypt: "+fileName);
-					throw ee;
+				if(ctcrypto!=null &&  (data != null && data.length>0)) { 
+					long startTime = System.nanoTime();
+					try { data = ctcrypto.decrypt(data); } catch(Exception ee) {
+						System.err.println("WARNING:  could not decrypt: "+fileName);
+						throw ee;
+					}
+					CTstats.time(CTstats.DECRYPT, startTime);
+					ctcrypto.putPlain(file.getMyPath(), data);
 				}
 			}
 
-			if(timeOnly || (data != null && data.length>0)) { 
+			if(fetch.timeOnly || (data != null && data.length>0)) { 
 				if(file.isTFILE()) fileName = file.getName();
 				cm.add(fileName, new CTdata(file.fileTime(), data, file));			// squirrel away CTfile ref for timerange info??
 				if(data != null) hasdata+=data.length;
@@ -807,6 +1445,100 @@ public class CTreader {
 		return hasdata;
 	}
 	
+	//--------------------------------------------------------------------------------------------------------
+	// getFileTimes:  time-only frame from index, without reading data.
+	// intact types are one point at file time;  packed binary blocks get a data-less frame sized from the
+	// (zip) index entry, so CTdata.timeRange expands the same point times as from the data.
+	// returns false if word count needs the data (numeric text, audio.wav header, encrypted);  caller then reads it
+	
+	private boolean getFileTimes(CTFile file, String fileName, CTmap cm, Fetch fetch) throws Exception {
+		char ftype = CTinfo.fileType(fileName);
+		int wordSize = CTinfo.wordSize(ftype);
+		if(ftype=='N' || ftype=='n') return false;					// word count is number of CSV values
+		if(wordSize <= 1) {
+			cm.add(fileName, new CTdata(file.fileTime(), null, file));
+			return true;
+		}
+		if(ctcrypto!=null || fileName.endsWith(".wav")) return false;
+		
+		long nbytes = 0;
+		try { nbytes = file.dataLength(); } catch(Exception e) { fetch.readError = true; return false; }
+		if(nbytes <= 0 || nbytes > Integer.MAX_VALUE) return false;
+		
+		CTdata ctd = new CTdata();
+		ctd.add(file.fileTime(), null, 0, (int)nbytes, file);
+		cm.add(fileName, ctd);
+		CTinfo.debugPrint("getFileTimes: "+file.getPath()+", words: "+(nbytes/wordSize));
+		return true;
+	}
+	
+	//--------------------------------------------------------------------------------------------------------
+	// getFileRange:  read only the words of a packed binary block that fall within start..end.
+	// point times are linear from block start (baseTime) to block end (fileTime), same as CTdata.timeRange(),
+	// so the word range (and byte offsets) can be computed before reading.  words are added as single-point frames.
+	// returns false if block not eligible (or wholly in range);  caller then reads entire block
+	
+	private boolean getFileRange(TimeFolder tfile, TimeFolder prior, CTmap cm, double start, double end, Fetch fetch) throws Exception {
+		if(fetch.timeOnly || ctcrypto!=null) return false;				// encrypted data is not word-addressable
+		CTfuture.checkCancelled();
+		CTFile file = tfile.getCTFile();
+		if(file==null || !file.isFile() || file.isTFILE()) return false;
+		String fileName = file.getName();
+		if(!cm.checkName(fileName)) return false;
+		char ftype = CTinfo.fileType(fileName);
+		int wordSize = CTinfo.wordSize(ftype);
+		if(wordSize <= 1 || ftype=='N' || ftype=='n') return false;		// not packed binary
+		
+		// multiple blocks per zip/folder start at prior block end time;  leave those to CTdata.timeRange
+		String parent = file.getParent();
+		if(parent == null) return false;
+		if(prior != null) {
+			CTFile pfile = prior.getCTFile();
+			if(pfile==null || parent.equals(pfile.getParent())) return false;
+		}
+		
+		int header = fileName.endsWith(".wav")?44:0;				// skip audio.wav header (44 bytes)
+		long count = 0;
+		try { count = (file.dataLength() - header) / wordSize; } catch(Exception e) { fetch.readError = true; return false; }
+		if(count <= 1) return false;
+		
+		double refTime = file.baseTime();
+		if(refTime <= 0) return false;
+		double dt = 0.;
+		if(header > 0) {											// sampleRate out of audio.wav header
+			byte[] hdr = file.read(0, header);
+			int rate = ByteBuffer.wrap(hdr, 24, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+			if(rate > 0) dt = 1. / rate;
+		}
+		else dt = (file.fileTime() - refTime) / (count-1);
+		if(!(dt > 0.)) return false;								// constant-time blocks, let timeRange sort it out
+
+		// word range [jlo,jhi] with start <= refTime+j*dt <= end (same expression as timeRange for identical times)
+		long jlo = (long)Math.max(0., Math.floor((start - refTime) / dt) - 1);		// clamp as double (open-ended start/end)
+		while(jlo < count && (refTime+jlo*dt) < start) jlo++;
+		long jhi = (long)Math.min(count-1, Math.floor((end - refTime) / dt) + 1);
+		while(jhi >= jlo && (refTime+jhi*dt) > end) jhi--;
+		if(jlo==0 && jhi==(count-1)) return false;					// whole block, read (and cache) it all
+		if(jhi < jlo) return (cm.get(fileName) != null);			// nothing in range (but need a frame to return empty vs null result)
+		
+		int nword = (int)(jhi - jlo + 1);
+		byte[] data;
+		try {
+			data = file.read(header + jlo*wordSize, nword*wordSize);
+		} catch(Exception e) {
+			fetch.readError = true;
+			return false;
+		}
+		if(data == null) return false;
+		
+		CTdata ctd = new CTdata();
+		for(int k=0; k<nword; k++) 
+			ctd.add(refTime+(jlo+k)*dt, data, k*wordSize, wordSize, file);		// words reference data, no copy
+		cm.add(fileName, ctd);
+		CTinfo.debugPrint("getFileRange: "+file.getPath()+", words: "+jlo+"-"+jhi+" of "+count);
+		return true;
+	}
+	
 	//--------------------------------------------------------------------------------------------------------
 	// flattenFolders:  make list of time/folder as one-deep list
 
@@ -816,15 +1548,19 @@ public class CTreader {
 	 * Clear data caches
 	 */
 	public void clearFileListCache() {
-//		System.err.println("Clear File List Cache! size: "+CTcache.fileListByChan.size());
-//		CTcache.fileListByChan.clear();
+//		System.err.println("Clear File List Cache! size: "+ctcache.fileListByChan.size());
+//		ctcache.fileListByChan.clear();
 		
 		// clear all the other caches too:
-		System.err.println("Clear Caches! File,Data,ZipMap size: "+CTcache.CTFileCache.size()+","+CTcache.DataCache.size()+","+CTcache.ZipMapCache.size());
-		CTcache.CTFileCache.clear();			// small memory use
-		CTcache.ZipFileCache.clear();			// small
+		System.err.println("Clear Caches! File,Data,ZipMap size: "+ctcache.CTFileCache.size()+","+CTcache.DataCache.size()+","+CTcache.ZipMapCache.size()+", DataCache: "+CTcache.DataCache);
+		ctcache.CTFileCache.clear();			// small memory use
+		CTcache.ZipFilePool.clear();			// small (in-use zips close on release)
 		CTcache.DataCache.clear();				// biggest
 		CTcache.ZipMapCache.clear();			// big
+		CTcache.ChanBloomCache.clear();			// small
+		if(ctcrypto != null) ctcrypto.clearPlain();		// decrypted data
+		prefetch.clear();						// live polling state
+		catalog.clear();						// source list
 	}
 	
 	/**
@@ -832,8 +1568,8 @@ public class CTreader {
 	 * @param chanKey channel key string
 	 */
 	public void clearFileListCache(String chanKey) {
-//		CTinfo.debugPrint("CLEAR fileListCache! chan: "+chanKey+", size: "+CTcache.fileListByChan.get(chanKey).length);
-		CTcache.fileListByChan.put(chanKey, null);
+//		CTinfo.debugPrint("CLEAR fileListCache! chan: "+chanKey+", size: "+ctcache.fileListByChan.get(chanKey).length);
+		ctcache.fileListByChan.remove(chanKey);
 	}
 
 	/**
@@ -842,7 +1578,7 @@ public class CTreader {
 	 * @throws Exception on error
 	 */
 	public void preCache(String source) throws Exception {
-		CTcache.buildIndices(source, 0.0);		// build in place one-pass index...
+		ctcache.buildIndices(source, 0.0);		// build in place one-pass index...
 /*
 		ArrayList<String> chans = listChans(source, true);		// ,true for fastSearch
 		Thread itt=null;
@@ -855,7 +1591,7 @@ public class CTreader {
 			itt = new Thread(it);
 			tlist.add(itt);
 			itt.start();
-//			TimeFolder[] cachedList = CTcache.fileListByChan.get(chankey);
+//			TimeFolder[] cachedList = ctcache.fileListByChan.get(chankey);
 //			System.err.println("CTreader chan indexed: "+chankey+", cacheSize: "+((cachedList==null)?(0):(cachedList.length)));
 			nchan++;
 		}
@@ -871,7 +1607,7 @@ public class CTreader {
 	 */
 	public void preCache() throws Exception {
 //		System.err.println("Indexing sources...");
-		CTcache.fileListByChan.clear();  		// fresh list
+		ctcache.fileListByChan.clear();  		// fresh list
 		ArrayList<String> sources = listSources();
 		for(String s:sources) preCache(s);				// run thru each source
 	}
@@ -902,9 +1638,9 @@ public class CTreader {
 	synchronized 
 	private TimeFolder[] flatFileList(String baseFolder, CTmap ictmap, String chanKey, boolean fileRefresh) throws Exception {
 //		long startTime = System.nanoTime();		
-		TimeFolder[] cachedList = CTcache.fileListByChan.get(chanKey);
+		TimeFolder[] cachedList = ctcache.fileListByChan.get(chanKey);
 		
-//		for(String chan : CTcache.fileListByChan.keySet()) System.err.println("KEY: "+chan);
+//		for(String chan : ctcache.fileListByChan.keySet()) System.err.println("KEY: "+chan);
 		System.err.println("flatFileList, refresh: "+fileRefresh+", chanKey: "+chanKey+", OldList.size: "+((cachedList==null)?(0):(cachedList.length)));
 //		if(fileRefresh) System.err.println("Indexing: "+chanKey);
 		long t1 = System.nanoTime();
@@ -914,7 +1650,7 @@ public class CTreader {
 		double iendTime = 0.;
 		if(cachedList != null && cachedList.length>0) {
 //			iendTime = cachedList[cachedList.length-1].getTime();
-			iendTime = CTcache.sourceEndTime(baseFolder);
+			iendTime = ctcache.sourceEndTime(baseFolder);
 		}
 		else 	CTinfo.debugPrint("Indexing files for chan: "+chanKey+", fileRefresh: "+fileRefresh);
 
@@ -949,7 +1685,7 @@ public class CTreader {
 					TimeFolder[] tmpList = new TimeFolder[cachedList.length - ichk];
 					for(int j=ichk,k=0; j<cachedList.length; j++,k++) tmpList[k] = cachedList[j];	// salvage old cache > updated oldestTime
 					cachedList = tmpList;
-					CTcache.fileListByChan.put(chanKey, cachedList);
+					ctcache.fileListByChan.put(chanKey, cachedList);
 				}
 			};
 
@@ -976,8 +1712,8 @@ public class CTreader {
 			}
 		}
 		
-		CTcache.fileListByChan.put(chanKey, ffarray); 	// BUG:  ffarray must be single-channel list here!
-		System.err.println("flatFileList update, chankey: "+chanKey+", listLen: "+ffarray.length+", fileListByChan.len: "+CTcache.fileListByChan.get(chanKey).length);
+		ctcache.fileListByChan.put(chanKey, ffarray); 	// BUG:  ffarray must be single-channel list here!
+		System.err.println("flatFileList update, chankey: "+chanKey+", listLen: "+ffarray.length+", fileListByChan.len: "+ctcache.fileListByChan.get(chanKey).length);
 
 //		System.err.println("Indexed: "+chanKey);
 		return ffarray;
@@ -1020,7 +1756,7 @@ public class CTreader {
 			else {
 				System.err.println("add folder: "+folder.getName()+" at time: "+ftime);
 				String fname = folder.getName();
-				if(ctmap.checkName(fname)) fflist.add(CTcache.newTimeFolder(folder,ftime));
+				if(ctmap.checkName(fname)) fflist.add(ctcache.newTimeFolder(folder,ftime));
 			}
 		}
 		
@@ -1029,7 +1765,7 @@ public class CTreader {
 */
 	//--------------------------------------------------------------------------------------------------------
 	// binary search for file at or before timestamp
-    private int fileSearch(TimeFolder[] fileList, double ftime) {
+    int fileSearch(TimeFolder[] fileList, double ftime) {
  //   	System.err.println("fileSearch ftime: "+ftime+", f0: "+fileList[0].getTime()+", chan: "+fileList[0].getCTFile().getName());
     	
     	if(ftime < fileList[0].getTime()) return 0;		// quick search for off BOF (was return -1)
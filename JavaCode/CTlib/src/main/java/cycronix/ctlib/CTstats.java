@@ -0,0 +1,181 @@
+/*
+Copyright 2026 agent
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package cycronix.ctlib;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * CloudTurbine utility class:  reader-side counters and latency histograms (see CTreader.getMetrics).
+ * Histograms count values in power-of-2 buckets, so percentiles are upper bounds within a factor of 2.
+ * Times are in microseconds.  Updates are lock-free;  metrics are JVM-wide, like the caches they describe.
+ * <p>
+ * @author agent
+ * @version 2026/10/19
+ *
+*/
+
+public class CTstats {
+
+	// metric names
+	static final String INDEX_BUILD = "index.build";		// full index build time
+	static final String INDEX_UPDATE = "index.update";		// incremental index update time
+	static final String READ = "read.";						// getData time per channel, by channel type
+	static final String DECRYPT = "decrypt";				// decrypt time per file
+	static final String INFLATE = "inflate";				// inflate time per zip entry
+	static final String GUNZIP = "gunzip";					// decompress time per gzip'd zip file
+	static final String ZIPMAP_HIT = "zipmapcache.hits";
+	static final String ZIPMAP_MISS = "zipmapcache.misses";
+
+	private static final Map<String, AtomicLong> counters = new ConcurrentHashMap<String, AtomicLong>();
+	private static final Map<String, Histogram> histograms = new ConcurrentHashMap<String, Histogram>();
+
+	private CTstats() {}
+
+	//--------------------------------------------------------------------------------------------------------
+	/**
+	 * Counter of given name, created if new
+	 * @param name counter name
+	 * @return counter
+	 */
+	public static AtomicLong counter(String name) {
+		AtomicLong c = counters.get(name);
+		if(c != null) return c;
+		synchronized(counters) {
+			c = counters.get(name);
+			if(c == null) counters.put(name, c = new AtomicLong());
+			return c;
+		}
+	}
+
+	/**
+	 * Histogram of given name, created if new
+	 * @param name histogram name
+	 * @return histogram
+	 */
+	public static Histogram histogram(String name) {
+		Histogram h = histograms.get(name);
+		if(h != null) return h;
+		synchronized(histograms) {
+			h = histograms.get(name);
+			if(h == null) histograms.put(name, h = new Histogram());
+			return h;
+		}
+	}
+
+	// record elapsed time since startNanos (System.nanoTime) to histogram
+	static void time(String name, long startNanos) {
+		histogram(name).record((System.nanoTime() - startNanos) / 1000);
+	}
+
+	// read histogram name of channel:  by file suffix of known types, else "other"
+	static String readName(String chan) {
+		if(CTinfo.fileType(chan, '?') == '?') return READ + "other";
+		return READ + chan.substring(chan.lastIndexOf('.')+1).toLowerCase();
+	}
+
+	/**
+	 * Current values:  each counter, and count, mean, p50, p99 and max of each histogram (name.count etc)
+	 * @return metrics by name, sorted
+	 */
+	public static Map<String, Number> snapshot() {
+		TreeMap<String, Number> m = new TreeMap<String, Number>();
+		for(Map.Entry<String, AtomicLong> e:counters.entrySet()) m.put(e.getKey(), e.getValue().get());
+		for(Map.Entry<String, Histogram> e:histograms.entrySet()) e.getValue().snapshot(e.getKey(), m);
+		return m;
+	}
+
+	/**
+	 * Zero all counters and histograms
+	 */
+	public static void reset() {
+		for(AtomicLong c:counters.values()) c.set(0);
+		for(Histogram h:histograms.values()) h.reset();
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	/**
+	 * Log2 histogram:  bucket i counts values v with 2^(i-1) &lt;= v &lt; 2^i (bucket 0:  v &lt;= 0)
+	 */
+	public static class Histogram {
+		private static final int NBUCKET = 64;
+		private final AtomicLongArray buckets = new AtomicLongArray(NBUCKET);
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong sum = new AtomicLong();
+		private final AtomicLong max = new AtomicLong();
+
+		/**
+		 * Add value
+		 * @param v value (e.g. microseconds)
+		 */
+		public void record(long v) {
+			buckets.incrementAndGet(v <= 0 ? 0 : Math.min(NBUCKET-1, 64 - Long.numberOfLeadingZeros(v)));
+			count.incrementAndGet();
+			sum.addAndGet(v);
+			long m = max.get();
+			while(v > m && !max.compareAndSet(m, v)) m = max.get();
+		}
+
+		public long count() 		{ return count.get(); }
+		public long sum() 			{ return sum.get(); }
+		public long max() 			{ return max.get(); }
+
+		public double mean() {
+			long n = count.get();
+			return (n==0) ? 0. : (double)sum.get() / (double)n;
+		}
+
+		/**
+		 * Approximate percentile:  upper bound of bucket holding it (at most max)
+		 * @param p percentile, 0-100
+		 * @return value
+		 */
+		public long percentile(double p) {
+			long n = count.get();
+			if(n == 0) return 0;
+			long rank = (long)Math.ceil(n * p / 100.);
+			long seen = 0;
+			for(int i=0; i<NBUCKET; i++) {
+				seen += buckets.get(i);
+				if(seen >= rank && seen > 0) return Math.min(max.get(), (i==0) ? 0 : (1L << i) - 1);
+			}
+			return max.get();
+		}
+
+		void reset() {
+			for(int i=0; i<NBUCKET; i++) buckets.set(i, 0);
+			count.set(0);
+			sum.set(0);
+			max.set(0);
+		}
+
+		void snapshot(String name, Map<String, Number> m) {
+			m.put(name+".count", count());
+			m.put(name+".mean", mean());
+			m.put(name+".p50", percentile(50));
+			m.put(name+".p99", percentile(99));
+			m.put(name+".max", max());
+		}
+
+		public String toString() {
+			return "count: "+count()+", mean: "+Math.round(mean())+", p50: "+percentile(50)+", p99: "+percentile(99)+", max: "+max();
+		}
+	}
+}
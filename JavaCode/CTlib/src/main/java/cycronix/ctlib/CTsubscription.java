@@ -0,0 +1,255 @@
+/*
+Copyright 2026 agent
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package cycronix.ctlib;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import cycronix.ctlib.CTcache.TimeFolder;
+
+/**
+ * CloudTurbine tail subscription:  new data of matching source channels, pushed to a listener as it is written.
+ * New blocks are found by filesystem notification (with periodic rescan as fallback) and the source index,
+ * read once, and queued per subscriber.  Each subscription delivers from its own thread, in time order per channel.
+ * If the listener falls behind, the queue is bounded:  oldest chunks are dropped (and counted).
+ * <p>
+ * Get a CTsubscription from CTreader.subscribe(), close it to stop.
+ * <p>
+ * @author agent
+ * @version 2026/10/19
+ *
+*/
+
+public class CTsubscription implements Closeable {
+
+	/**
+	 * Receives new data of a subscription
+	 */
+	public interface Listener {
+		/**
+		 * New data for channel (called on subscription thread)
+		 * @param chan channel name
+		 * @param data new points (one or more blocks)
+		 */
+		void onData(String chan, CTdata data);
+	}
+
+	private final CTreader ctreader;
+	private final CTwatcher watcher;
+	private final String sname;							// source key
+	private final Pattern chanPattern;
+	private final Listener listener;
+	private final ArrayBlockingQueue<Chunk> queue;
+	private final Map<String, double[]> chans = new HashMap<String, double[]>();		// per channel: last index entry time, last point time
+	private boolean started = false;					// initial scan done
+	private volatile boolean closed = false;
+	private final Thread thread;
+
+	// metrics
+	private final AtomicLong delivered = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private volatile double newestTime = 0.;			// newest point time queued
+	private volatile double deliveredTime = 0.;			// newest point time delivered (or existing at start)
+	private volatile long latency = 0;					// msec, detection to delivery (last chunk)
+
+	// one queued chunk of channel data
+	private static class Chunk {
+		final String chan;
+		final CTdata data;
+		final long detected;							// msec
+		Chunk(String chan, CTdata data, long detected) { this.chan = chan; this.data = data; this.detected = detected; }
+	}
+
+	/**
+	 * Constructor (see CTreader.subscribe)
+	 */
+	CTsubscription(CTreader ctreader, CTwatcher watcher, String sname, String chanPattern, Listener listener, int maxQueue) {
+		this.ctreader = ctreader;
+		this.watcher = watcher;
+		this.sname = sname;
+		this.chanPattern = globPattern(chanPattern);
+		this.listener = listener;
+		queue = new ArrayBlockingQueue<Chunk>(Math.max(1, maxQueue));
+		thread = new Thread(new Runnable() {
+			public void run() { dispatch(); }
+		}, "CTsubscription-"+sname);
+		thread.setDaemon(true);
+	}
+
+	void start() {
+		thread.start();
+	}
+
+	// glob to regex:  '*' any characters, '?' one character;  null for all
+	private static Pattern globPattern(String glob) {
+		if(glob == null || glob.length()==0) glob = "*";
+		StringBuilder sb = new StringBuilder();
+		int from = 0;
+		for(int i=0; i<glob.length(); i++) {
+			char c = glob.charAt(i);
+			if(c != '*' && c != '?') continue;
+			if(i > from) sb.append(Pattern.quote(glob.substring(from, i)));
+			sb.append((c=='*') ? ".*" : ".");
+			from = i+1;
+		}
+		if(from < glob.length()) sb.append(Pattern.quote(glob.substring(from)));
+		return Pattern.compile(sb.toString());
+	}
+
+	/**
+	 * Source key of subscription
+	 * @return source (as CTreader index key)
+	 */
+	String getSourceKey() 		{ return sname; }
+
+	//--------------------------------------------------------------------------------------------------------
+	// scan:  queue data of index entries past last seen, per matching channel (called after index update).
+	// first scan only notes the newest entries:  subscription starts with data written after subscribe
+
+	synchronized void scan(CTcache ctcache) {
+		if(closed) return;
+		long detected = System.currentTimeMillis();
+		ArrayList<String> keys;
+		synchronized(ctcache) {									// index builder lock
+			keys = new ArrayList<String>(ctcache.fileListByChan.keySet());
+		}
+		String prefix = sname + "/";
+		for(String key:keys) {
+			if(!key.startsWith(prefix)) continue;
+			String chan = key.substring(prefix.length());
+			if(!chanPattern.matcher(chan).matches()) continue;
+			TimeFolder[] list = ctcache.fileListByChan.get(key);			// snapshot
+			if(list == null || list.length == 0) continue;
+			double newest = list[list.length-1].getTime();
+
+			double[] state = chans.get(chan);
+			if(state == null) {
+				if(!started) {										// existing channel, skip old data
+					chans.put(chan, new double[] { newest, newest });
+					if(newest > newestTime) newestTime = deliveredTime = newest;
+					continue;
+				}
+				state = new double[] { 0., 0. };					// new channel, all of it is new
+				chans.put(chan, state);
+			}
+
+			int ifirst = list.length;
+			while(ifirst > 0 && list[ifirst-1].getTime() > state[0]) ifirst--;
+			if(ifirst == list.length) continue;
+
+			CTdata ctd = null;
+			try {
+				ctd = ctreader.readChunk(chan, list, 0, ifirst, list.length-1, state[1]+0.000001, Double.MAX_VALUE);		// microsecond after (no overlap)
+			} catch(Exception e) {
+				CTinfo.debugPrint("CTsubscription read error, chan: "+chan+", "+e);
+				continue;												// try again next scan
+			}
+			state[0] = newest;
+			if(ctd == null || ctd.size() == 0) continue;
+			state[1] = ctd.time(ctd.size()-1);
+			enqueue(new Chunk(chan, ctd, detected));
+			if(state[1] > newestTime) newestTime = state[1];
+		}
+		started = true;
+	}
+
+	// bounded:  drop oldest if full
+	private void enqueue(Chunk chunk) {
+		while(!queue.offer(chunk)) {
+			if(queue.poll() != null) dropped.incrementAndGet();
+		}
+	}
+
+	// deliver queued chunks to listener
+	private void dispatch() {
+		while(!closed) {
+			Chunk chunk;
+			try {
+				chunk = queue.take();
+			} catch(InterruptedException e) {
+				break;
+			}
+			try {
+				listener.onData(chunk.chan, chunk.data);
+			} catch(Exception e) {
+				System.err.println("CTsubscription listener exception, chan: "+chunk.chan+": "+e);
+				e.printStackTrace();
+			}
+			latency = System.currentTimeMillis() - chunk.detected;
+			double t = chunk.data.time(chunk.data.size()-1);
+			if(t > deliveredTime) deliveredTime = t;
+			delivered.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Stop subscription.  Queued data is discarded.
+	 */
+	public void close() {
+		if(closed) return;
+		closed = true;
+		watcher.remove(this);
+		thread.interrupt();
+		queue.clear();
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// metrics
+
+	/**
+	 * Number of chunks waiting for delivery
+	 * @return queue size
+	 */
+	public int getQueued() 				{ return queue.size(); }
+
+	/**
+	 * Number of chunks dropped because the queue was full
+	 * @return dropped chunks
+	 */
+	public long getDropped() 			{ return dropped.get(); }
+
+	/**
+	 * Number of chunks delivered to listener
+	 * @return delivered chunks
+	 */
+	public long getDelivered() 			{ return delivered.get(); }
+
+	/**
+	 * Data lag:  newest point time queued minus newest point time delivered
+	 * @return lag (sec), 0 when caught up
+	 */
+	public double getLag() {
+		return Math.max(0., newestTime - deliveredTime);
+	}
+
+	/**
+	 * Delivery latency of last chunk, from detection of new data to listener call
+	 * @return latency (msec)
+	 */
+	public long getLatency() 			{ return latency; }
+
+	@Override
+	public String toString() {
+		return "source: "+sname+", delivered: "+delivered.get()+", queued: "+queue.size()+", dropped: "+dropped.get()
+				+", lag: "+getLag()+" s, latency: "+latency+" ms";
+	}
+}
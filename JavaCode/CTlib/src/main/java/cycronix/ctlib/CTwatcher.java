@@ -0,0 +1,238 @@
+/*
+Copyright 2026 agent
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package cycronix.ctlib;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CloudTurbine utility class:  watch source folders of CTsubscriptions for new data.
+ * Each source folder and its newest time folder are watched (WatchService), so both top-level
+ * and segmented (source/segment/block) layouts are seen.  After a short settle time following events,
+ * the source index is updated and subscriptions scan for new entries.  Sources are also rescanned
+ * periodically, for filesystems without change notification.  One daemon thread per CTreader.
+ * <p>
+ * @author agent
+ * @version 2026/10/19
+ *
+*/
+
+class CTwatcher implements Runnable {
+
+	private static final long SETTLE = 50;					// msec without events before scan
+	private static final long MAX_SETTLE = 250;				// msec, scan at least this often during steady events
+	private static final long RESCAN = 1000;				// msec, rescan interval without events
+	private static final int MAX_DEPTH = 2;					// folder levels watched (source, newest child)
+
+	private final CTcache ctcache;
+	private final Map<String, ArrayList<CTsubscription>> subs = new HashMap<String, ArrayList<CTsubscription>>();	// by source key
+	private final Map<WatchKey, Watched> keys = new HashMap<WatchKey, Watched>();
+	private final Map<String, WatchKey[]> newest = new HashMap<String, WatchKey[]>();		// newest key per depth, by source key
+	private WatchService watchService = null;
+	private Thread thread = null;
+
+	// watched folder
+	private static class Watched {
+		final String sname;
+		final Path dir;
+		final int depth;
+		Watched(String sname, Path dir, int depth) { this.sname = sname; this.dir = dir; this.depth = depth; }
+	}
+
+	CTwatcher(CTcache ctcache) {
+		this.ctcache = ctcache;
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	/**
+	 * Add subscription:  watch its source, note current newest data, start delivery
+	 * @param sub subscription
+	 * @param sourceFolder source folder
+	 */
+	void add(CTsubscription sub, File sourceFolder) {
+		String sname = sub.getSourceKey();
+		synchronized(this) {
+			ArrayList<CTsubscription> slist = subs.get(sname);
+			if(slist == null) {
+				slist = new ArrayList<CTsubscription>();
+				subs.put(sname, slist);
+				watch(sname, sourceFolder);
+			}
+			slist.add(sub);
+			if(thread == null) {
+				thread = new Thread(this, "CTreader-watch");
+				thread.setDaemon(true);
+				thread.start();
+			}
+		}
+		ctcache.updateIndices(sname);
+		sub.scan(ctcache);								// initial scan:  start at newest
+		sub.start();
+	}
+
+	/**
+	 * Remove subscription, stop watching its source if last one
+	 * @param sub subscription
+	 */
+	synchronized void remove(CTsubscription sub) {
+		String sname = sub.getSourceKey();
+		ArrayList<CTsubscription> slist = subs.get(sname);
+		if(slist == null || !slist.remove(sub) || !slist.isEmpty()) return;
+		subs.remove(sname);
+		for(WatchKey key:new ArrayList<WatchKey>(keys.keySet())) {
+			if(keys.get(key).sname.equals(sname)) { key.cancel(); keys.remove(key); }
+		}
+		newest.remove(sname);
+		if(subs.isEmpty()) {								// stop thread
+			if(thread != null) thread.interrupt();
+			thread = null;
+			if(watchService != null) try { watchService.close(); } catch(IOException e) {}
+			watchService = null;
+		}
+	}
+
+	// watch source folder and its newest sub-folders
+	private void watch(String sname, File sourceFolder) {
+		try {
+			if(watchService == null) watchService = FileSystems.getDefault().newWatchService();
+		} catch(Exception e) {
+			System.err.println("CTwatcher: no filesystem notification, rescan only: "+e);
+			return;
+		}
+		Path dir = sourceFolder.toPath();
+		for(int depth=0; depth<MAX_DEPTH && dir!=null; depth++) {
+			register(sname, dir, depth);
+			dir = newestFolder(dir);
+		}
+	}
+
+	// newest time sub-folder, null if none
+	private static Path newestFolder(Path dir) {
+		File[] files = dir.toFile().listFiles();
+		if(files == null) return null;
+		File last = null;
+		double ltime = 0.;
+		for(File f:files) {
+			if(!f.isDirectory()) continue;
+			double ftime = CTinfo.fileTime(f.getName());
+			if(ftime > ltime) { ltime = ftime;	last = f; }
+		}
+		return (last == null) ? null : last.toPath();
+	}
+
+	// register folder, replacing (cancelling) older folder at same depth
+	private void register(String sname, Path dir, int depth) {
+		if(watchService == null) return;
+		try {
+			WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+			keys.put(key, new Watched(sname, dir, depth));
+			WatchKey[] nkeys = newest.get(sname);
+			if(nkeys == null) {
+				nkeys = new WatchKey[MAX_DEPTH];
+				newest.put(sname, nkeys);
+			}
+			if(nkeys[depth] != null && nkeys[depth] != key) {
+				nkeys[depth].cancel();
+				keys.remove(nkeys[depth]);
+			}
+			nkeys[depth] = key;
+		} catch(Exception e) {
+			CTinfo.debugPrint("CTwatcher register error: "+dir+", "+e);
+		}
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// watch loop:  gather events until settled, then update index and scan subscriptions of changed sources
+
+	public void run() {
+		while(!Thread.currentThread().isInterrupted()) {
+			Set<String> dirty = new HashSet<String>();
+			try {
+				WatchService ws;
+				synchronized(this) {
+					if(thread != Thread.currentThread()) return;			// stopped
+					ws = watchService;
+				}
+				WatchKey key = null;
+				if(ws == null) 	Thread.sleep(RESCAN);
+				else			key = ws.poll(RESCAN, TimeUnit.MILLISECONDS);
+
+				if(key == null) {
+					synchronized(this) { dirty.addAll(subs.keySet()); }		// periodic rescan
+				}
+				else {
+					long settled = System.currentTimeMillis() + MAX_SETTLE;
+					while(key != null) {
+						event(key, dirty);
+						if(System.currentTimeMillis() > settled) break;
+						key = ws.poll(SETTLE, TimeUnit.MILLISECONDS);
+					}
+				}
+			} catch(InterruptedException e) {
+				return;
+			} catch(ClosedWatchServiceException e) {
+				return;
+			}
+
+			for(String sname:dirty) scan(sname);
+		}
+	}
+
+	// handle events of key:  note source, watch new time folders
+	private synchronized void event(WatchKey key, Set<String> dirty) {
+		Watched w = keys.get(key);
+		if(w == null) { key.cancel(); return; }				// replaced
+		dirty.add(w.sname);
+		for(WatchEvent<?> ev:key.pollEvents()) {
+			if(ev.kind() != StandardWatchEventKinds.ENTRY_CREATE) continue;
+			Path child = w.dir.resolve((Path)ev.context());
+			if(w.depth+1 < MAX_DEPTH && Files.isDirectory(child) && CTinfo.fileTime(child.getFileName().toString()) > 0.)
+				register(w.sname, child, w.depth+1);
+		}
+		if(!key.reset()) keys.remove(key);
+	}
+
+	// update index of source, scan its subscriptions
+	private void scan(String sname) {
+		ArrayList<CTsubscription> slist;
+		synchronized(this) {
+			ArrayList<CTsubscription> s = subs.get(sname);
+			if(s == null) return;
+			slist = new ArrayList<CTsubscription>(s);
+		}
+		try {
+			ctcache.updateIndices(sname);
+			for(CTsubscription sub:slist) sub.scan(ctcache);
+		} catch(Exception e) {
+			System.err.println("CTwatcher scan error, source: "+sname+": "+e);
+		}
+	}
+}
@@ -36,6 +36,7 @@ import java.util.Map.Entry;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.zip.GZIPOutputStream;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -288,7 +289,7 @@ public class CTwriter {
 	/** 
 	 * set output files to be zipped setting compression level
 	 * @param zipflag zip mode true/false (default: true)
-	 * @param clevel zip compression level (0=none, 1-fastest, 9-max, 10=auto-gzip).  default=1
+	 * @param clevel zip compression level (0=none (STORED, fastest read), 1-fastest, 9-max, 10=auto-gzip).  default=1
 	 */
 	public void setZipMode(boolean zipflag, int clevel) {
 		if(clevel == 10) setZipMode(zipflag, 0, true);
@@ -654,6 +655,14 @@ public class CTwriter {
 				
 				ZipEntry entry = new ZipEntry(name);
 				entry.setTime(time / (timeFactor/1000));     	// internal zipentry time; let it match folder-time
+				if(compressLevel == 0) {						// STORED entries are read back zero-copy (no inflate)
+					CRC32 crc = new CRC32();
+					crc.update(bdata);
+					entry.setMethod(ZipEntry.STORED);
+					entry.setSize(bdata.length);
+					entry.setCompressedSize(bdata.length);
+					entry.setCrc(crc.getValue());
+				}
 				try {
 					zos.putNextEntry(entry);
 				} catch(IOException e) {
@@ -0,0 +1,448 @@
+/*
+Copyright 2026 agent
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package cycronix.ctlib;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * CloudTurbine utility class:  read-only zip file with direct entry access.
+ * The central directory is parsed once on open.  The file is memory-mapped (when enabled),
+ * STORED entries (compress level 0) are returned as zero-copy ByteBuffer slices,
+ * and deflated entries are inflated straight into caller-provided buffers.
+ * A gzip'd zip file (file.zip.gz, CTwriter gzip mode) is decompressed once into memory and read the same way.
+ * <p>
+ * @author agent
+ * @version 2026/10/19
+ *
+*/
+
+class CTzipFile {
+
+	// memory-mapped files can't be deleted on Windows until unmapped (GC), which would block CTwriter trim
+	private static volatile boolean useMmap = !System.getProperty("os.name", "").startsWith("Windows");
+
+	private static final int LOCSIG = 0x04034b50, CENSIG = 0x02014b50, ENDSIG = 0x06054b50;
+	private static final int ZIP64_ENDSIG = 0x06064b50, ZIP64_LOCSIG = 0x07064b50;
+	private static final int STORED = 0, DEFLATED = 8;
+	private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	final String path;
+	private RandomAccessFile raf;
+	private FileChannel fc;
+	private ByteBuffer map = null;							// null if not memory-mapped
+	private boolean inMemory = false;						// decompressed gzip held in map
+	private final long fileLength;
+	private final LinkedHashMap<String,Entry> entries = new LinkedHashMap<String,Entry>();	// central directory order
+
+	/**
+	 * Constructor:  open zip file and parse its central directory
+	 * @param path zip file path
+	 * @throws IOException if not a (complete) zip file
+	 */
+	CTzipFile(String path) throws IOException {
+		this.path = path;
+		raf = new RandomAccessFile(path, "r");
+		try {
+			fc = raf.getChannel();
+			fileLength = fc.size();
+			if(useMmap && fileLength <= Integer.MAX_VALUE)
+				map = fc.map(FileChannel.MapMode.READ_ONLY, 0, fileLength).order(ByteOrder.LITTLE_ENDIAN);
+			readCentralDirectory();
+		} catch(IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	// in-memory zip file (decompressed gzip)
+	private CTzipFile(String path, byte[] data) throws IOException {
+		this.path = path;
+		fileLength = data.length;
+		map = ByteBuffer.wrap(data);
+		inMemory = true;
+		readCentralDirectory();
+	}
+
+	/**
+	 * Open zip file.  A gzip'd zip (path.gz, or path read as file.zip for file.zip.gz) is decompressed into memory.
+	 * @param path zip file path
+	 * @return open zip file
+	 * @throws IOException if not a (complete) zip file
+	 */
+	static CTzipFile open(String path) throws IOException {
+		if(path.endsWith(".gz")) 	return new CTzipFile(path, gunzip(new File(path)));
+		File gzfile = new File(path + ".gz");
+		if(!new File(path).exists() && gzfile.exists()) return new CTzipFile(path, gunzip(gzfile));
+		return new CTzipFile(path);
+	}
+
+	// decompress gzip file into memory, sized from gzip trailer (uncompressed size mod 2^32)
+	private static byte[] gunzip(File gzfile) throws IOException {
+		long startTime = System.nanoTime();
+		int size = 0;
+		RandomAccessFile gz = new RandomAccessFile(gzfile, "r");
+		try {
+			if(gz.length() >= 4) {
+				gz.seek(gz.length()-4);
+				byte[] b = new byte[4];
+				gz.readFully(b);
+				size = (b[0]&0xff) | (b[1]&0xff)<<8 | (b[2]&0xff)<<16 | (b[3]&0xff)<<24;
+			}
+		} finally {
+			gz.close();
+		}
+		byte[] data = new byte[(size > 0) ? size : 65536];
+		int n = 0;
+		InputStream in = new GZIPInputStream(new FileInputStream(gzfile), 65536);
+		try {
+			while(true) {
+				if(n == data.length) {									// full:  done, or grow (multi-member, >4GB mod)
+					int c = in.read();
+					if(c < 0) break;
+					if(data.length >= Integer.MAX_VALUE-8) throw new IOException("gzip file too large: "+gzfile);
+					data = Arrays.copyOf(data, (int)Math.min(Integer.MAX_VALUE-8, 2L*data.length));
+					data[n++] = (byte)c;
+				}
+				int len = in.read(data, n, data.length-n);
+				if(len < 0) break;
+				n += len;
+			}
+		} finally {
+			in.close();
+		}
+		CTstats.time(CTstats.GUNZIP, startTime);
+		return (n == data.length) ? data : Arrays.copyOf(data, n);
+	}
+
+	/**
+	 * Memory held by in-memory (decompressed) zip file
+	 * @return bytes, 0 if file (or memory-mapped file)
+	 */
+	long memorySize() 	{ return inMemory ? fileLength : 0; }
+
+	static void setMemoryMap(boolean mmap) 	{ useMmap = mmap; }
+	static boolean getMemoryMap()			{ return useMmap; }
+
+	//--------------------------------------------------------------------------------------------------------
+	// entry access
+
+	int size() 						{ return entries.size(); }
+	Entry getEntry(String name) 	{ return entries.get(name); }
+
+	String[] entryNames() {
+		return entries.keySet().toArray(new String[entries.size()]);
+	}
+
+	/**
+	 * Read entry contents into new byte array
+	 * @param e zip entry
+	 * @return entry data
+	 * @throws IOException on read error
+	 */
+	byte[] read(Entry e) throws IOException {
+		byte[] data = new byte[(int)e.size];
+		read(e, data, 0);
+		return data;
+	}
+
+	/**
+	 * Read (inflate) entry contents into caller buffer
+	 * @param e zip entry
+	 * @param dst destination array, must have room for e.getSize() bytes at offset
+	 * @param off offset into dst
+	 * @return number bytes read
+	 * @throws IOException on read error
+	 */
+	int read(Entry e, byte[] dst, int off) throws IOException {
+		return read(e, 0, dst, off, (int)e.size);
+	}
+
+	/**
+	 * Read byte range of entry contents into caller buffer.  
+	 * Deflated entries are inflated only up to the end of the range (leading bytes inflated and skipped).
+	 * @param e zip entry
+	 * @param offset start byte within entry
+	 * @param dst destination array
+	 * @param off offset into dst
+	 * @param len number bytes to read
+	 * @return number bytes read
+	 * @throws IOException on read error
+	 */
+	int read(Entry e, long offset, byte[] dst, int off, int len) throws IOException {
+		if(offset < 0 || len < 0 || offset+len > e.size) throw new IOException("Zip entry range out of bounds: "+e.name);
+		if(e.method == STORED) {
+			raw(e, offset, len).get(dst, off, len);
+			return len;
+		}
+		if(e.method != DEFLATED) throw new IOException("Unsupported zip compression method: "+e.method+", entry: "+e.name);
+
+		long startTime = System.nanoTime();
+		Inflate inf = new Inflate(raw(e, 0, (int)e.csize));
+		try {
+			if(offset > 0) {											// inflate and discard up to range
+				byte[] skipbuf = new byte[(int)Math.min(8192, offset)];
+				long nskip = 0;
+				while(nskip < offset) {
+					int n = inf.inflate(skipbuf, 0, (int)Math.min(skipbuf.length, offset-nskip));
+					if(n < 0) throw new IOException("Short zip entry read: "+nskip+"/"+offset+", entry: "+e.name);
+					nskip += n;
+				}
+			}
+			int nread = 0;
+			while(nread < len) {
+				int n = inf.inflate(dst, off+nread, len-nread);
+				if(n < 0) throw new IOException("Short zip entry read: "+nread+"/"+len+", entry: "+e.name);
+				nread += n;
+			}
+			return nread;
+		} catch(DataFormatException ex) {
+			throw new IOException("Bad zip entry data: "+e.name+", "+ex.getMessage());
+		} finally {
+			inf.end();
+			CTstats.time(CTstats.INFLATE, startTime);
+		}
+	}
+
+	// Inflate:  raw-deflate decoder fed in chunks from (mapped) compressed entry bytes
+	private static class Inflate {
+		private final Inflater inf = new Inflater(true);
+		private final ByteBuffer src;
+		private final byte[] inbuf;
+		private boolean dummy = false;
+
+		Inflate(ByteBuffer src) {
+			this.src = src;
+			inbuf = new byte[Math.min(8192, Math.max(1, src.remaining()))];
+		}
+
+		// inflate up to len bytes, -1 if no more output
+		int inflate(byte[] b, int off, int len) throws DataFormatException {
+			while(true) {
+				int n = inf.inflate(b, off, len);
+				if(n > 0) return n;
+				if(inf.finished() || inf.needsDictionary() || !inf.needsInput()) return -1;
+				int nin = Math.min(inbuf.length, src.remaining());
+				if(nin == 0) {
+					if(dummy) return -1;
+					inf.setInput(new byte[1]);			// nowrap inflater may want one extra byte
+					dummy = true;
+				}
+				else {
+					src.get(inbuf, 0, nin);
+					inf.setInput(inbuf, 0, nin);
+				}
+			}
+		}
+
+		void end() {
+			inf.end();
+		}
+	}
+
+	/**
+	 * Entry contents as ByteBuffer.  Zero-copy slice of the mapped file for STORED entries.
+	 * @param e zip entry
+	 * @return read-only (STORED) or heap (deflated) buffer positioned at 0
+	 * @throws IOException on read error
+	 */
+	ByteBuffer buffer(Entry e) throws IOException {
+		if(e.method == STORED) return raw(e, 0, (int)e.size);
+		return ByteBuffer.wrap(read(e));
+	}
+
+	/**
+	 * Byte range of entry contents.  Zero-copy for STORED entries; deflated entries are inflated (and skipped) up to the range.
+	 * @param e zip entry
+	 * @param offset start byte within entry
+	 * @param len number bytes
+	 * @return buffer holding requested range
+	 * @throws IOException on read error
+	 */
+	ByteBuffer buffer(Entry e, long offset, int len) throws IOException {
+		if(offset < 0 || len < 0 || offset+len > e.size) throw new IOException("Zip entry range out of bounds: "+e.name);
+		if(e.method == STORED) return raw(e, offset, len);
+		byte[] data = new byte[len];
+		read(e, offset, data, 0, len);
+		return ByteBuffer.wrap(data);
+	}
+
+	boolean isStored(Entry e) {
+		return e.method == STORED;
+	}
+
+	// raw (undecoded) entry bytes
+	private ByteBuffer raw(Entry e, long offset, int len) throws IOException {
+		long pos = dataOffset(e) + offset;
+		if(pos+len > fileLength) throw new IOException("Truncated zip entry: "+e.name+", zipfile: "+path);
+		if(map != null) {
+			ByteBuffer bb = map.duplicate();				// independent position/limit per reader
+			bb.position((int)pos);
+			bb.limit((int)(pos+len));
+			return bb.slice().asReadOnlyBuffer();
+		}
+		ByteBuffer bb = ByteBuffer.allocate(len);
+		readFully(bb, pos);
+		bb.flip();
+		return bb;
+	}
+
+	// entry data starts after variable-length local header
+	private long dataOffset(Entry e) throws IOException {
+		if(e.dataOffset < 0) {
+			ByteBuffer loc = ByteBuffer.allocate(30).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(loc, e.locOffset);
+			if(loc.getInt(0) != LOCSIG) throw new IOException("Bad zip local header: "+e.name+", zipfile: "+path);
+			e.dataOffset = e.locOffset + 30 + (loc.getShort(26)&0xffff) + (loc.getShort(28)&0xffff);
+		}
+		return e.dataOffset;
+	}
+
+	private void readFully(ByteBuffer bb, long pos) throws IOException {
+		if(map != null) {
+			ByteBuffer src = map.duplicate();
+			src.position((int)pos);
+			src.limit((int)pos + bb.remaining());
+			bb.put(src);
+			return;
+		}
+		while(bb.hasRemaining()) {
+			int n = fc.read(bb, pos);
+			if(n < 0) throw new IOException("Unexpected end of zipfile: "+path);
+			pos += n;
+		}
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// central directory
+
+	private void readCentralDirectory() throws IOException {
+		// end record is last thing in file, followed by up to 64K comment
+		int tailLen = (int)Math.min(fileLength, 65535 + 22);
+		ByteBuffer tail = ByteBuffer.allocate(tailLen).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(tail, fileLength - tailLen);
+		int epos = -1;
+		for(int i=tailLen-22; i>=0; i--) {
+			if(tail.getInt(i) == ENDSIG) { epos = i; break; }
+		}
+		if(epos < 0) throw new IOException("zip END header not found (partial zip?): "+path);
+
+		long nentry = tail.getShort(epos+10) & 0xffff;
+		long cenLen = tail.getInt(epos+12) & ZIP64_MAGIC;
+		long cenPos = tail.getInt(epos+16) & ZIP64_MAGIC;
+
+		if(nentry == 0xffff || cenLen == ZIP64_MAGIC || cenPos == ZIP64_MAGIC) {		// zip64 end record
+			long lpos = fileLength - tailLen + epos - 20;
+			ByteBuffer loc = ByteBuffer.allocate(20).order(ByteOrder.LITTLE_ENDIAN);
+			if(lpos >= 0) readFully(loc, lpos);
+			if(lpos >= 0 && loc.getInt(0) == ZIP64_LOCSIG) {
+				ByteBuffer end64 = ByteBuffer.allocate(56).order(ByteOrder.LITTLE_ENDIAN);
+				readFully(end64, loc.getLong(8));
+				if(end64.getInt(0) != ZIP64_ENDSIG) throw new IOException("Bad zip64 END header: "+path);
+				nentry = end64.getLong(32);
+				cenLen = end64.getLong(40);
+				cenPos = end64.getLong(48);
+			}
+		}
+		if(cenPos + cenLen > fileLength || cenLen > Integer.MAX_VALUE) throw new IOException("Bad zip central directory: "+path);
+
+		ByteBuffer cen = ByteBuffer.allocate((int)cenLen).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(cen, cenPos);
+		int p = 0;
+		for(long i=0; i<nentry; i++) {
+			if(p+46 > cenLen || cen.getInt(p) != CENSIG) throw new IOException("Bad zip central directory entry: "+path);
+			int method = cen.getShort(p+10) & 0xffff;
+			long csize = cen.getInt(p+20) & ZIP64_MAGIC;
+			long size = cen.getInt(p+24) & ZIP64_MAGIC;
+			int nlen = cen.getShort(p+28) & 0xffff;
+			int xlen = cen.getShort(p+30) & 0xffff;
+			int clen = cen.getShort(p+32) & 0xffff;
+			long locOffset = cen.getInt(p+42) & ZIP64_MAGIC;
+
+			byte[] nbytes = new byte[nlen];
+			cen.position(p+46);
+			cen.get(nbytes);
+			String name = new String(nbytes, UTF8);
+
+			if(size == ZIP64_MAGIC || csize == ZIP64_MAGIC || locOffset == ZIP64_MAGIC) {	// sizes in zip64 extra field
+				int x = p + 46 + nlen, xend = x + xlen;
+				while(x+4 <= xend) {
+					int tag = cen.getShort(x) & 0xffff, tsz = cen.getShort(x+2) & 0xffff;
+					if(tag == 0x0001) {
+						int q = x+4;
+						if(size == ZIP64_MAGIC) 		{ size = cen.getLong(q); q+=8; }
+						if(csize == ZIP64_MAGIC) 		{ csize = cen.getLong(q); q+=8; }
+						if(locOffset == ZIP64_MAGIC) 	{ locOffset = cen.getLong(q); }
+						break;
+					}
+					x += 4 + tsz;
+				}
+			}
+			if(size > Integer.MAX_VALUE) throw new IOException("zip entry too large: "+name+", zipfile: "+path);
+
+			entries.put(name, new Entry(name, method, csize, size, locOffset));
+			p += 46 + nlen + xlen + clen;
+		}
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+
+	synchronized void close() {
+		map = null;											// mapping itself is released by GC
+		try { if(raf != null) raf.close(); } catch(Exception e) {};
+		raf = null;
+	}
+
+	public String toString() {
+		return path+" (entries: "+entries.size()+", mapped: "+(map!=null)+(inMemory?" (in memory)":"")+")";
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// Entry:  central directory info for one zip entry
+
+	static class Entry {
+		final String name;
+		final int method;
+		final long csize, size;
+		final long locOffset;
+		private volatile long dataOffset = -1;				// resolved from local header on first read
+
+		private Entry(String name, int method, long csize, long size, long locOffset) {
+			this.name = name;
+			this.method = method;
+			this.csize = csize;
+			this.size = size;
+			this.locOffset = locOffset;
+		}
+
+		String getName() 	{ return name; }
+		long getSize() 		{ return size; }
+	}
+}
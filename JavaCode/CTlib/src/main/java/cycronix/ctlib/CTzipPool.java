@@ -0,0 +1,214 @@
+/*
+Copyright 2026 agent
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package cycronix.ctlib;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CloudTurbine utility class:  reference-counted pool of open zip files.
+ * Readers acquire a Handle, use it, and release it.  Opening a zip only locks that one file,
+ * so readers of different zip files proceed in parallel.  A zip file evicted from the pool
+ * while still in use is closed when its last user releases it.
+ * In-memory zip files (decompressed .zip.gz) are also limited by total memory.
+ * <p>
+ * @author agent
+ * @version 2026/10/19
+ *
+*/
+
+class CTzipPool {
+
+	private int maxOpen;													// max number idle-or-busy open zip files
+	private long maxMemory = (long)(0.05 * Runtime.getRuntime().maxMemory());	// max bytes of in-memory (gzip) zip files
+	private final LinkedHashMap<String,Handle> pool = new LinkedHashMap<String,Handle>(16, 0.75f, true);	// LRU order
+
+	// statistics
+	private final AtomicLong hits = new AtomicLong();						// acquired already-open
+	private final AtomicLong misses = new AtomicLong();						// opened
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Constructor
+	 * @param maxOpen max number of zip files held open
+	 */
+	CTzipPool(int maxOpen) {
+		this.maxOpen = Math.max(1, maxOpen);
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	/**
+	 * Get open zip file handle, opening it if needed.  Caller must release() it when done.
+	 * @param zipfile zip file path
+	 * @return open zip file handle
+	 * @throws IOException if zip file cannot be opened (e.g. partial zip as it is being written)
+	 */
+	Handle acquire(String zipfile) throws IOException {
+		Handle h;
+		synchronized(this) {
+			h = pool.get(zipfile);
+			if(h == null) {
+				h = new Handle(zipfile);
+				pool.put(zipfile, h);
+				evict();
+			}
+			h.refs++;
+		}
+
+		try {
+			long opened = h.open();								// per-file lock, others proceed
+			if(opened < 0) 	hits.incrementAndGet();
+			else			misses.incrementAndGet();
+			if(opened > 0) synchronized(this) { evict(); }		// new in-memory zip
+		} catch(IOException e) {
+			release(h);
+			throw e;
+		}
+		return h;
+	}
+
+	/**
+	 * Release handle from acquire().  Closes it if evicted and no longer in use.
+	 * @param h handle to release
+	 */
+	void release(Handle h) {
+		if(h == null) return;
+		boolean doClose = false;
+		synchronized(this) {
+			h.refs--;
+			if(h.refs == 0) {
+				if(h.evicted) doClose = true;
+				else if(!h.isOpen() && pool.get(h.path)==h) pool.remove(h.path);	// failed open, don't keep
+			}
+		}
+		if(doClose) h.close();
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// configuration and housekeeping
+
+	synchronized void setMaxOpen(int max) {
+		maxOpen = Math.max(1, max);
+		evict();
+	}
+
+	synchronized int getMaxOpen() {
+		return maxOpen;
+	}
+
+	/**
+	 * Set memory budget of in-memory (decompressed gzip) zip files
+	 * @param maxBytes max total bytes
+	 */
+	synchronized void setMaxMemory(long maxBytes) {
+		maxMemory = Math.max(0, maxBytes);
+		evict();
+	}
+
+	// bytes held by in-memory zip files.  caller holds pool lock
+	private long memory() {
+		long mem = 0;
+		for(Handle h:pool.values()) mem += h.memory;
+		return mem;
+	}
+
+	synchronized int size() {
+		return pool.size();
+	}
+
+	synchronized long memoryBytes() {
+		return memory();
+	}
+
+	long hitCount() 		{ return hits.get(); }
+	long missCount() 		{ return misses.get(); }
+	long evictionCount() 	{ return evictions.get(); }
+
+	/**
+	 * Close all zip files (deferred for those in use)
+	 */
+	synchronized void clear() {
+		Iterator<Handle> itr = pool.values().iterator();
+		while(itr.hasNext()) {
+			Handle h = itr.next();
+			itr.remove();
+			h.evicted = true;
+			if(h.refs == 0) h.close();
+		}
+	}
+
+	// drop least-recently-used handles beyond maxOpen (or in-memory budget;  most recent one stays).  caller holds pool lock.
+	private void evict() {
+		Iterator<Map.Entry<String,Handle>> itr = pool.entrySet().iterator();
+		long mem = memory();
+		while((pool.size() > maxOpen || (mem > maxMemory && pool.size() > 1)) && itr.hasNext()) {
+			Handle h = itr.next().getValue();
+			mem -= h.memory;
+			itr.remove();
+			evictions.incrementAndGet();
+			h.evicted = true;
+			if(h.refs == 0) h.close();							// else close on last release
+		}
+	}
+
+	public String toString() {
+		long mem;
+		synchronized(this) { mem = memory(); }
+		return "open zipfiles: "+size()+"/"+getMaxOpen()+(mem>0 ? ", in-memory bytes: "+mem : "");
+	}
+
+	//--------------------------------------------------------------------------------------------------------
+	// Handle:  one open zip file plus its use count
+
+	static class Handle {
+		final String path;
+		private CTzipFile zfile = null;
+		private volatile long memory = 0;				// in-memory zip bytes
+		private int refs = 0;							// guarded by pool
+		private boolean evicted = false;				// guarded by pool
+
+		private Handle(String path) {
+			this.path = path;
+		}
+
+		// open if not open.  returns in-memory bytes of newly opened zip (else 0), -1 if already open
+		private synchronized long open() throws IOException {
+			if(zfile != null) return -1;
+			zfile = CTzipFile.open(path);					// a new file is opened here!
+			memory = zfile.memorySize();
+			return memory;
+		}
+
+		private synchronized boolean isOpen() {
+			return zfile != null;
+		}
+
+		private synchronized void close() {
+			if(zfile == null) return;
+			try { zfile.close(); } catch(Exception e) {};
+			zfile = null;
+			memory = 0;
+		}
+
+		synchronized CTzipFile zipFile() {
+			return zfile;
+		}
+	}
+}
@@ -26,6 +26,7 @@ package ctpack;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import cycronix.ctlib.*;
 import org.apache.commons.cli.*;
 
@@ -112,6 +113,7 @@ public class CTpack {
 			ctw.setHiResTime(hiResTime);
 	     	if(password!=null) ctw.setPassword(password);			// optional encrypt
 
+			HashMap<String,CTcursor> cursors = new HashMap<String,CTcursor>();		// one streaming cursor per chan, read each block once
 			for(double thisTime=oldTime; thisTime<=newTime; thisTime+=timePerBlock) {		// {Loop by Time}
 				ArrayList<String> chans = ctr.listChans(sourceFolder);
 				if(debug) System.err.println("CTpack thisTime: "+thisTime+", numChans: "+chans.size());
@@ -122,7 +124,13 @@ public class CTpack {
 					
 					// TO DO: filter channels, continue; to delete channel(s) from archive
 					
-					CTdata data = ctr.getData(sourceFolder, chan, thisTime, timePerBlock-0.000001, "absolute");	// get next chunk (less 1us no-overlap?)
+					CTcursor cursor = cursors.get(chan);
+					if(cursor == null) {
+						cursor = ctr.cursor(sourceFolder, chan, thisTime, newTime);
+						cursors.put(chan, cursor);
+					}
+					boolean lastBlock = singleFolder || (thisTime+timePerBlock) > newTime;
+					CTdata data = cursor.next(lastBlock ? Double.MAX_VALUE : (thisTime+timePerBlock));	// get next chunk (no-overlap)
 					/*		
      	NOTES: 
      	getData returns point-by-point CTdata with interpolated times per as-written blocks.
@@ -190,6 +198,7 @@ public class CTpack {
 				}
 				else 	ctw.flush();				// manually flush each timePerBlock
 			}
+			for(CTcursor cursor:cursors.values()) cursor.close();
 		}
 		catch(Exception e) {
 			System.err.println("CTsink exception: "+e);
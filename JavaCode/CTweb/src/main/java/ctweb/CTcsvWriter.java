@@ -0,0 +1,289 @@
+/*
+Copyright 2026 agent
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package ctweb;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import cycronix.ctlib.CTdata;
+
+/**
+ * Streaming text writer for CTweb CSV responses.
+ * Times and values are formatted from primitive columns straight into a reusable byte buffer,
+ * which is flushed to the response stream as it fills.  Text is the same as the String forms
+ * (Double.toString, Float.toString, Long.toString) that CTweb builds otherwise.
+ * <p>
+ * Doubles use a shortest-digits fast path:  for n = 1,2,... digits, the n-digit decimal nearest the value
+ * is tried, and the first that parses back exactly to the value is written.  With mantissa below 2^53
+ * and power-of-ten up to 22 the check is one exactly rounded multiply or divide.  Other values
+ * (16+ digits, very large or small magnitude, NaN, etc) use Double.toString.  Floats use Float.toString,
+ * whose digits are not always shortest (before Java 19).
+ * <p>
+ * @author agent
+ * @version 2026/10/19
+ *
+*/
+
+class CTcsvWriter {
+
+	private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+	private static final double[] NPOW10 = { 1e0, 1e-1, 1e-2, 1e-3, 1e-4, 1e-5, 1e-6, 1e-7 };
+
+	private final OutputStream out;
+	private final String charset;			// for non-ASCII text
+	private final byte[] buf;
+	private int n = 0;						// bytes in buf
+	private long total = 0;					// bytes written
+	private final byte[] digits = new byte[20];
+
+	/**
+	 * Constructor
+	 * @param out output stream (e.g. servlet response)
+	 * @param charset character encoding for text
+	 * @param size buffer size (bytes)
+	 */
+	CTcsvWriter(OutputStream out, String charset, int size) {
+		this.out = out;
+		this.charset = (charset==null) ? "ISO-8859-1" : charset;
+		buf = new byte[Math.max(64, size)];
+	}
+
+	/**
+	 * Check for data type with text form (as CTdata.getDataAsString)
+	 * @param ftype data type
+	 * @return true if text or numeric
+	 */
+	static boolean isText(char ftype) {
+		return "sNnIijFf".indexOf(ftype) >= 0;
+	}
+
+	//---------------------------------------------------------------------------------
+	// CSV rows:  time,value per point (or time or value only), as CTweb default string response
+
+	/**
+	 * Write rows of time,value for data points [from,to)
+	 * @param tdata data
+	 * @param ftype data type (see CTinfo.fileType)
+	 * @param from first point
+	 * @param to end point (exclusive)
+	 * @param fetch 't' for time only, 'd' for data only, else both
+	 */
+	void writeRows(CTdata tdata, char ftype, int from, int to, char fetch) throws IOException {
+		double[] time = tdata.getTime();
+		if(fetch == 't') {
+			for(int i=from; i<to; i++) { writeTime(time[i]);	write('\n'); }
+			return;
+		}
+		boolean wtime = (fetch != 'd');
+		switch(ftype) {
+		case 'F':
+		case 'N':	{
+			double[] d = (ftype=='F') ? tdata.getDataAsFloat64() : tdata.getDataAsNumericF64();
+			for(int i=from; i<to; i++) {
+				if(wtime) { writeTime(time[i]);	write(','); }
+				writeDouble(d[i]);		write('\n');
+			}
+			return;
+		}
+		case 'f':
+		case 'n':	{
+			float[] d = (ftype=='f') ? tdata.getDataAsFloat32() : tdata.getDataAsNumericF32();
+			for(int i=from; i<to; i++) {
+				if(wtime) { writeTime(time[i]);	write(','); }
+				writeFloat(d[i]);		write('\n');
+			}
+			return;
+		}
+		case 'I':	{
+			long[] d = tdata.getDataAsInt64();
+			for(int i=from; i<to; i++) {
+				if(wtime) { writeTime(time[i]);	write(','); }
+				writeLong(d[i]);		write('\n');
+			}
+			return;
+		}
+		case 'i':	{
+			int[] d = tdata.getDataAsInt32();
+			for(int i=from; i<to; i++) {
+				if(wtime) { writeTime(time[i]);	write(','); }
+				writeLong(d[i]);		write('\n');
+			}
+			return;
+		}
+		case 'j':	{
+			short[] d = tdata.getDataAsInt16();
+			for(int i=from; i<to; i++) {
+				if(wtime) { writeTime(time[i]);	write(','); }
+				writeLong(d[i]);		write('\n');
+			}
+			return;
+		}
+		default:	{
+			String[] d = tdata.getDataAsString(ftype);			// text
+			if(d == null) return;
+			for(int i=from; i<to; i++) {
+				if(wtime) { writeTime(time[i]);	write(','); }
+				write(d[i]);			write('\n');
+			}
+			return;
+		}
+		}
+	}
+
+	//---------------------------------------------------------------------------------
+	// primitives
+
+	/**
+	 * Write time as CTweb formatTime:  integer seconds as long, else as double
+	 * @param time (sec)
+	 */
+	void writeTime(double time) throws IOException {
+		if(((long)time) == time) 	writeLong((long)time);
+		else						writeDouble(time);
+	}
+
+	void write(char c) throws IOException {
+		if(n == buf.length) flushBuffer();
+		buf[n++] = (byte)c;
+	}
+
+	void write(String s) throws IOException {
+		if(s == null) s = "null";					// as StringBuilder.append
+		int len = s.length();
+		for(int i=0; i<len; i++) {
+			if(s.charAt(i) >= 0x80) { writeBytes(s.getBytes(charset)); return; }
+		}
+		for(int i=0; i<len; i++) write(s.charAt(i));
+	}
+
+	private void writeBytes(byte[] b) throws IOException {
+		for(int k=0; k<b.length; ) {
+			if(n == buf.length) flushBuffer();
+			int m = Math.min(b.length-k, buf.length-n);
+			System.arraycopy(b, k, buf, n, m);
+			n += m;		k += m;
+		}
+	}
+
+	void writeLong(long v) throws IOException {
+		if(v == Long.MIN_VALUE) { write(Long.toString(v)); return; }
+		if(v < 0) { write('-'); v = -v; }
+		int nd = 0;
+		do { digits[nd++] = (byte)('0' + (v % 10)); v /= 10; } while(v > 0);
+		while(nd > 0) write((char)digits[--nd]);
+	}
+
+	/**
+	 * Write double, same text as Double.toString
+	 * @param v value
+	 */
+	void writeDouble(double v) throws IOException {
+		double a = Math.abs(v);
+		if(a >= 1e-7 && a < 1e15) {
+			int e10 = exp10(a);
+			if(exact(a, e10-15) >= 0.) {									// short enough:  find fewest digits
+				for(int nd=1; nd<=16; nd++) {
+					int p = e10 - nd + 1;									// value = m * 10^p
+					double m = exact(a, p);
+					if(m >= 0.) { writeDecimal(v < 0, (long)m, p);	return; }
+				}
+			}
+		}
+		write(Double.toString(v));
+	}
+
+	// mantissa m with m * 10^p == a exactly (as parsed), -1 if none
+	private static double exact(double a, int p) {
+		if(p < -22 || p > 22) return -1.;
+		double m = (p < 0) ? Math.rint(a * POW10[-p]) : Math.rint(a / POW10[p]);
+		if(m > 9007199254740992.) return -1.;							// 2^53
+		double back = (p < 0) ? (m / POW10[-p]) : (m * POW10[p]);
+		return (back == a) ? m : -1.;
+	}
+
+	/**
+	 * Write float, same text as Float.toString
+	 * @param v value
+	 */
+	void writeFloat(float v) throws IOException {
+		write(Float.toString(v));
+	}
+
+	// decimal exponent of a (1e-7 <= a < 1e15);  may be one low, which only adds a trailing zero digit
+	private static int exp10(double a) {
+		int e = 0;
+		if(a >= 1.) 	{ while(e < 22 && a >= POW10[e+1]) e++; }
+		else 			{ e = -1;	while(e > -7 && a < NPOW10[-e]) e--; }
+		return e;
+	}
+
+	// m * 10^p in Java toString layout:  ddd.ddd for 10^-3 <= value < 10^7, else d.dddEn (at least one fraction digit)
+	private void writeDecimal(boolean neg, long m, int p) throws IOException {
+		while(m % 10 == 0) { m /= 10;	p++; }						// strip trailing zeros
+		int nd = 0;
+		do { digits[nd++] = (byte)('0' + (m % 10)); m /= 10; } while(m > 0);	// digits in reverse order
+		int e = p + nd - 1;											// scientific exponent
+
+		if(neg) write('-');
+		if(e >= -3 && e < 7) {
+			if(e >= 0) {
+				for(int i=0; i<=e; i++) write((i < nd) ? (char)digits[nd-1-i] : '0');		// integer part
+				write('.');
+				if(nd <= e+1) write('0');
+				else for(int i=e+1; i<nd; i++) write((char)digits[nd-1-i]);
+			}
+			else {
+				write('0');		write('.');
+				for(int i=-1; i>e; i--) write('0');
+				for(int i=0; i<nd; i++) write((char)digits[nd-1-i]);
+			}
+		}
+		else {
+			write((char)digits[nd-1]);		write('.');
+			if(nd == 1) write('0');
+			else for(int i=1; i<nd; i++) write((char)digits[nd-1-i]);
+			write('E');
+			writeLong(e);
+		}
+	}
+
+	//---------------------------------------------------------------------------------
+
+	private void flushBuffer() throws IOException {
+		if(n == 0) return;
+		out.write(buf, 0, n);
+		total += n;
+		n = 0;
+	}
+
+	/**
+	 * Write out buffered text
+	 */
+	void flush() throws IOException {
+		flushBuffer();
+		out.flush();
+	}
+
+	/**
+	 * Bytes written so far
+	 * @return byte count
+	 */
+	long length() {
+		return total + n;
+	}
+}
@@ -57,12 +57,16 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import javax.imageio.ImageIO;
 //import javax.servlet.ServletConfig;
@@ -91,7 +95,11 @@ import org.eclipse.jetty.util.security.Constraint;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.eclipse.jetty.server.Connector;
 
+import cycronix.ctlib.CTaggregate;
+import cycronix.ctlib.CTjoin;
 import cycronix.ctlib.CTdata;
+import cycronix.ctlib.CTfederation;
+import cycronix.ctlib.CTfuture;
 import cycronix.ctlib.CTinfo;
 import cycronix.ctlib.CTreader;
 import cycronix.ctlib.CTwriter;
@@ -103,7 +111,8 @@ public class CTweb {
 	private static final String servletRoot = "/CT";
 	private static final String rbnbRoot = "/RBNB";
 //	private static String rootFolder="CTdata";
-	private static String rootFolder=null;				// for compat with CT2DB
+	private static String rootFolder=null;				// for compat with CT2DB;  PUT (write) root if several
+	private static String[] rootFolders=null;			// read roots:  rootFolder arg is a File.pathSeparator list (federated)
 	private static CTreader ctreader=null;
 	public static boolean debug=false;
 	public static boolean Debug=false;					// debug local plus CT
@@ -112,6 +121,7 @@ public class CTweb {
     private static String resourceBase = null;			// search for resource base
     private static String sourceFolder = null;
     private static int MaxDat = 10000000;				// max number data elements to return (was 65536)
+    private static long readTimeout = 60000;			// msec, deadline of concurrent (wildcard) channel reads
     private static long queryCount=0;
     private static String keyStoreFile="ctweb.jks";		// HTTPS keystore file path
     private static String keyStorePW="ctweb.pw";		// keystore PW
@@ -119,6 +129,8 @@ public class CTweb {
 	private static int	port = 8000;					// default port
 	private static int sslport = 8443;					// HTTPS port (0 means none)
 	private static String password=null;				// CTcrypto password
+	private static int decryptCacheMB=0;				// decrypted-data cache (MB), opt-in:  plaintext in memory
+	private static boolean jmxMetrics=false;			// register CTreader metrics MBean (JMX)
     private static int scaleImage=1;					// reduce image size by factor
     private static boolean fastSearch=false;			// fast channel search, reduces startup time 
     private static String CTwebPropsFile=null;			// redirect to other CTweb
@@ -149,7 +161,7 @@ public class CTweb {
     public static void main(String[] args) throws Exception {
 
     	if(args.length == 0) {
-    		System.err.println("CTweb -r -x -X -F -W -p <port> -P <sslport> -f <webfolder> -s <sourceFolder> -k <keystoreFile> -K <keystorePW> -a <authenticationFile> -S <scaleImage> -R <routingFile> rootFolder");
+    		System.err.println("CTweb -r -x -X -F -W -p <port> -P <sslport> -f <webfolder> -s <sourceFolder> -k <keystoreFile> -K <keystorePW> -a <authenticationFile> -S <scaleImage> -R <routingFile> -e <password> -E <decryptCacheMB> -M rootFolder["+File.pathSeparator+"rootFolder2...]");
     		if(args!=null && args.length>0 && args[0].equals("-h")) System.exit(0);		// print help and exit
     	}
     	
@@ -170,6 +182,8 @@ public class CTweb {
      		if(args[dirArg].equals("-a"))	realmProps = args[++dirArg];
      		if(args[dirArg].equals("-S")) 	scaleImage = Integer.parseInt(args[++dirArg]);
      		if(args[dirArg].equals("-e"))	password = args[++dirArg];
+     		if(args[dirArg].equals("-E"))	decryptCacheMB = Integer.parseInt(args[++dirArg]);
+     		if(args[dirArg].equals("-M"))	jmxMetrics = true;
      		if(args[dirArg].equals("-R"))	CTwebPropsFile = args[++dirArg];
      		if(args[dirArg].equals("-W"))	maxCTwriters = Integer.parseInt(args[++dirArg]);
      		if(args[dirArg].equals("-w"))	keepTime = Double.parseDouble(args[++dirArg]);
@@ -202,11 +216,15 @@ public class CTweb {
      		}
      	}
      	else {
-     		if(!(new File(rootFolder).exists())) {
-     			System.err.println("Cannot find specified data folder: "+rootFolder);
-     			System.exit(0);	
+     		for(String root:rootFolder.split(File.pathSeparator)) {
+     			if(!(new File(root).exists())) {
+     				System.err.println("Cannot find specified data folder: "+root);
+     				System.exit(0);	
+     			}
      		}
      	}
+     	rootFolders = rootFolder.split(File.pathSeparator);
+     	rootFolder = rootFolders[0];
 
      	// set resourceBase
      	if(resourceBase==null) {
@@ -215,8 +233,12 @@ public class CTweb {
      	}
      	
      	// create CT reader 
-     	ctreader = new CTreader(rootFolder);
+     	if(rootFolders.length > 1) 	ctreader = new CTfederation(Arrays.asList(rootFolders));	// one endpoint over several roots
+     	else						ctreader = new CTreader(rootFolder);
      	if(password!=null) ctreader.setPassword(password, true);		// optional decrypt
+     	if(decryptCacheMB > 0) ctreader.setDecryptCacheSize(decryptCacheMB * 1048576L);
+     	if(jmxMetrics) ctreader.registerMBean();
+     	ctreader.setSwap(swapFlag);										// byte order for downsampled data
      	CTinfo.setDebug(Debug);
         if(preCache) ctreader.preCache();
         
@@ -319,7 +341,7 @@ public class CTweb {
         String msg;
         if(sslport > 0) msg = ", HTTP port: "+port+", HTTPS port: "+sslport;
         else				 msg = ", HTTP port: "+port;
-        System.out.println("Server started.  webFolder: "+resourceBase+", dataFolder: "+rootFolder+msg+"\n");
+        System.out.println("Server started.  webFolder: "+resourceBase+", dataFolder: "+ctreader.getFolder()+msg+"\n");
 
         return server;
     }
@@ -551,12 +573,20 @@ public class CTweb {
     			String reference="newest";			
     			String param;	char ftype='s';	  char fetch = 'b';
     			long cacheDur = 100;		// default 100ms (for wildcard requests only)
+    			int points = 0;				// max points (downsample), 0 for all
+    			String agg = "minmax";		// downsample method:  minmax, lttb, mean
+    			double window = 0.;			// aggregation window (sec), 0 for none
+    			String join = "previous";	// multi-chan table time alignment:  exact, previous, nearest, linear
     			param = request.getParameter("d");	if(param != null) duration = Double.parseDouble(param);
     			param = request.getParameter("t");	if(param != null) { start = Double.parseDouble(param); reference="absolute"; }
     			param = request.getParameter("r");	if(param != null) reference = param;
     			param = request.getParameter("f");	if(param != null) fetch = param.charAt(0);
     			param = request.getParameter("dt");	if(param != null) ftype = param.charAt(0);
     			param = request.getParameter("c");	if(param != null) cacheDur = Long.parseLong(param);
+    			param = request.getParameter("points");	if(param != null) points = Integer.parseInt(param);
+    			param = request.getParameter("agg");	if(param != null) agg = param;
+    			param = request.getParameter("window");	if(param != null) window = Double.parseDouble(param);
+    			param = request.getParameter("join");	if(param != null) join = param;
 
     			if(reference.equals("refresh")) {
     				ctreader.clearFileListCache();
@@ -587,6 +617,10 @@ public class CTweb {
         				}
         			}
 
+    				String etag = "S"+listEpoch+"-"+ctreader.getSourcesVersion();
+    				if(CTwebProps != null) etag += "-"+Integer.toHexString(CTwebProps.keySet().hashCode());
+    				if(notModified(request, response, etag)) return;		// client has current source list
+
     				if(sourceList==null || sourceList.size()==0) sbresp.append("No Sources!");
     				else {
     					Collections.sort(sourceList, new Comparator<String>() {		// sort source list
@@ -638,54 +672,72 @@ public class CTweb {
     				}
     				if(debug) System.err.println("got wildcard source, pathInfo: "+pathInfo+", sbase: "+sbase+", cbase: "+cbase);
 //    				sourceList = ctreader.listSources();
-    				File listFile[] = new File(rootFolder+File.separator+sbase).listFiles();  	// quick and dirty folder list
-    				
-    				// simply append all matching sources/chans as single response:
-    				double oldTime=0, newTime=0, lagTime=0, sTime=0, eTime=0;
- //   				for(String sname : sourceList) {
-    				if(listFile != null) { 	// no-file check
- //   					String folders = "";
+    				ArrayList<String> snames = new ArrayList<String>();
+    				for(String root:rootFolders) {									// matching sources of every root
+    					File listFile[] = new File(root+File.separator+sbase).listFiles();  	// quick and dirty folder list
+    					if(listFile == null) continue; 	// no-file check
     					for(File f:listFile) {
     						String sname = f.getName();
     						if(sname.startsWith(".")) continue;  		// skip hidden files
     						sname = sbase + File.separator + sname;
-    						if(true) {
-    							//    					if(sbase==null || sname.startsWith(sbase)) {		// get it
-    							ArrayList<String> clist = new ArrayList<String>();
-    							if(cbase != null) 	clist.add(cbase);
-    							else 				clist = ctreader.listChans(rootFolder+File.separator+sname,fastSearch);
-
-    							for(String chan : clist) {
-    								if(cbase==null || chan.equals(cbase)) {
-    									CTdata tdata = ctreader.getData(sname,chan,start,duration,reference);
-
-    									if(tdata != null  && tdata.size()>0) {  	// MJM 8/1/18, 9/17/18
-    										String[] dlist = tdata.getDataAsString(CTinfo.fileType(chan,'s'));
-    										if(dlist != null) {
-    											for(String d : dlist) sbresp.append(d+"\n");
-    										}
-
-    										// gather header info:
-    										double[] tlimits = ctreader.timeLimits(sname, chan);
-    										if(oldTime > tlimits[0]) oldTime = tlimits[0];
-    										if(newTime==0 || newTime < tlimits[1]) newTime = tlimits[1];
-    										lagTime = ((double)System.currentTimeMillis()/1000.) - newTime;
-    										double time[] = tdata.getTime();
-    										if(sTime==0 || time[0] > sTime) sTime = time[0];			// freshest
-    										if(eTime==0 || time[time.length-1] > eTime) eTime = time[time.length-1];
-    										
-    										// add file-list to header:
-//    										System.err.println("Folder: "+f.getName());
-//    										if(folders.length() > 0) folders += ",";
-//    										folders += f.getName();
-    									}
-    								}
+    						if(!snames.contains(sname)) snames.add(sname);
+    					}
+    				}
+
+    				// read all matching sources/chans concurrently
+    				ArrayList<String> wsources = new ArrayList<String>();
+    				ArrayList<String> wchans = new ArrayList<String>();
+    				ArrayList<CTfuture<CTdata>> wdata = new ArrayList<CTfuture<CTdata>>();
+    				for(String sname:snames) {
+    					ArrayList<String> clist = new ArrayList<String>();
+    					if(cbase != null) 	clist.add(cbase);
+    					else 				clist = ctreader.listChans(sname,fastSearch);
+    					if(clist == null) continue;
+    					for(String chan : clist) {
+    						if(cbase==null || chan.equals(cbase)) {
+    							wsources.add(sname);
+    							wchans.add(chan);
+    							wdata.add(ctreader.getDataAsync(sname,chan,start,duration,reference,readTimeout));
+    						}
+    					}
+    				}
+
+    				// simply append all matching sources/chans as single response:
+    				double oldTime=0, newTime=0, lagTime=0, sTime=0, eTime=0;
+    				long deadline = System.currentTimeMillis() + readTimeout;
+    				try {
+    					for(int i=0; i<wdata.size(); i++) {
+    						String sname = wsources.get(i);
+    						String chan = wchans.get(i);
+    						CTdata tdata;
+    						try { tdata = wdata.get(i).get(Math.max(1, deadline-System.currentTimeMillis()), TimeUnit.MILLISECONDS); }	// TimeoutException past deadline
+    						catch(ExecutionException e) {
+    							if(!(e.getCause() instanceof RejectedExecutionException))		// read error:  fail request, as synchronous read
+    								throw (e.getCause() instanceof Exception) ? (Exception)e.getCause() : e;
+    							tdata = ctreader.getData(sname,chan,start,duration,reference);		// async queue full:  read here
+    						}
+
+    						if(tdata != null  && tdata.size()>0) {  	// MJM 8/1/18, 9/17/18
+    							String[] dlist = tdata.getDataAsString(CTinfo.fileType(chan,'s'));
+    							if(dlist != null) {
+    								for(String d : dlist) sbresp.append(d+"\n");
     							}
+
+    							// gather header info:
+    							double[] tlimits = ctreader.timeLimits(sname, chan);
+    							if(oldTime > tlimits[0]) oldTime = tlimits[0];
+    							if(newTime==0 || newTime < tlimits[1]) newTime = tlimits[1];
+    							lagTime = ((double)System.currentTimeMillis()/1000.) - newTime;
+    							double time[] = tdata.getTime();
+    							if(sTime==0 || time[0] > sTime) sTime = time[0];			// freshest
+    							if(eTime==0 || time[time.length-1] > eTime) eTime = time[time.length-1];
     						}
     					}
-//    					response.addHeader("folders", folders); 	// custom wildcard '*' info
-//    					lastHeaderFolders = folders;
+    				} finally {
+    					for(CTfuture<CTdata> f:wdata) f.cancel(false);		// no-op if done;  on error stop remaining reads
     				}
+//    				response.addHeader("folders", folders); 	// custom wildcard '*' info
+//    				lastHeaderFolders = folders;
 
     				if(sbresp.length() == 0) {  // MJM 9/17/18:  return SC_NOT_FOUND if no match
 						formResponse(response, null);		// add CORS header even for error response
@@ -714,13 +766,41 @@ public class CTweb {
     				String sname = pathParts[2];
     				for(int i=3; i<pathParts.length; i++) sname += ("/"+pathParts[i]);		// multi-level source name
     				if(sname.endsWith("/")) sname = sname.substring(0,sname.length()-2);    				
-    				if(debug) System.err.println("CTweb listChans for source: "+(rootFolder+File.separator+sname));
+    				if(debug) System.err.println("CTweb listChans for source: "+sname);
 
-    				ArrayList<String> clist = ctreader.listChans(rootFolder+File.separator+sname,fastSearch);
+    				ArrayList<String> clist = ctreader.listChans(sname,fastSearch);
+    				if(ftype != 'H' && !fastSearch && clist != null 				// channel list from index catalog (versioned)
+    						&& notModified(request, response, "C"+listEpoch+"-"+ctreader.getChansVersion())) return;
 
     				if(clist == null) sbresp.append("<NULL>");
     				else {
-    					if(ftype == 'H') {								// all chans in HTML table format
+    					if(ftype == 'H' && duration > 0.) {				// all chans in HTML table format, rows time-aligned
+    						ArrayList<String> tlist = new ArrayList<String>();		// table columns:  numeric and text, not binary
+    						for(String chan : clist) if(CTinfo.fileType(chan) != 'B') tlist.add(chan);
+    						CTjoin ctj = tlist.isEmpty() ? null : ctreader.join(sname, tlist, start, duration, reference, join);
+    						
+    						sbresp.append("<table id="+sname+">\n");
+    						sbresp.append("<tr><th>Time</th>");
+    						for(String chan : tlist) sbresp.append("<th>"+chan+"</th>");
+    						sbresp.append("</tr>\n");
+    						int nrow = 0;
+    						while(ctj != null && ctj.next()) {
+    							if(++nrow > MaxDat) {
+    								System.err.println("CTweb: limiting output rows to: "+MaxDat);
+    								break;
+    							}
+    							sbresp.append("<tr>");
+    							sbresp.append("<td>"+(ctj.getTime()/86400.+25569.)+"</td>");		// spreadsheet time (epoch 1900)
+    							for(int j=0; j<ctj.size(); j++) {
+    								String c = ctj.getString(j);
+    								sbresp.append("<td>"+((c==null)?"":c)+"</td>");			// empty cell if no value
+    							}
+    							sbresp.append("</tr>\n");	
+    						}
+    						if(ctj != null) ctj.close();
+    						sbresp.append("</table>");
+    					}
+    					else if(ftype == 'H') {							// all chans in HTML table format
 
     						double time[] = null;
     						ArrayList<String[]> chanlist = new ArrayList<String[]>();
@@ -769,12 +849,40 @@ public class CTweb {
 //    				String sourcePath = rootFolder+File.separator+source;
     				String[] strdata=null;		
 
-    				// setTimeOnly partially-implemented
-    				if(fetch == 't') 	ctreader.setTimeOnly(true);		// don't waste time/memory getting data...
-    				else    			ctreader.setTimeOnly(false);
+    				boolean timeOnly = (fetch == 't');		// don't waste time/memory getting data (per request:  ctreader is shared)
 
     				if(doProfile) System.err.println("doGet <R time: "+((System.nanoTime()-startTime)/1000000.)+" ms, Memory Used MB: " + (double) (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) / (1024*1024));
                     
+                    // windowed statistics:  rows of time,count,min,max,mean
+                    if(window > 0.) {
+                    	if(window < duration/MaxDat) {				// one row per window:  same output limit as data
+                    		System.err.println("CTweb: aggregate window too small, limit output rows to: "+MaxDat+", window: "+window+", duration: "+duration);
+                    		formResponse(response, null);		// add CORS header even for error response
+                    		response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+                    		return;
+                    	}
+                    	CTaggregate ca = ctreader.getAggregate(source,chan,start,duration,reference,window);
+                    	if(ca == null || ca.size() == 0) {
+                    		if(debug) System.err.println("No aggregate data for: "+pathInfo);
+                    		formResponse(response, null);		// add CORS header even for error response
+                    		response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                    		return;
+                    	}
+                    	double[] atime = ca.getTime();
+                    	long[] acount = ca.getCount();
+                    	double[] amin = ca.getMin(), amax = ca.getMax(), amean = ca.getMean();
+                    	for(int i=0; i<atime.length; i++) 
+                    		sbresp.append(formatTime(atime[i])+","+acount[i]+","+amin[i]+","+amax[i]+","+amean[i]+"\n");
+                    	
+                    	double[] tlimits = ctreader.timeLimits(source, chan);
+                    	double lagTime = ((double)System.currentTimeMillis()/1000.) - tlimits[1];
+                    	formHeader(response, atime[0], atime[atime.length-1], tlimits[0], tlimits[1], lagTime);
+                    	response.setContentType("text/html");
+                    	formResponse(response, sbresp);
+                    	if(debug) System.err.println("aggregate response, windows: "+atime.length);
+                    	return;
+                    }
+                    
                     // main data-fetch:  (MJM 10/22/21: wrap to enable writer-newest fetch?)
                     CTdata tdata = null;
                     String schan = source + "/" + chan;
@@ -782,7 +890,7 @@ public class CTweb {
                     if(maxCTwriters > 0 && reference.equals("newest") && duration==0) {
                         tdata = CTlastwrite.get(schan);
                     }
-                    if(tdata == null) tdata = ctreader.getData(source,chan,start,duration,reference);
+                    if(tdata == null) tdata = ctreader.getData(source,chan,start,duration,reference,points,agg,timeOnly);
                     else {
                         double[] ttime = tdata.getTime();
                       //  if(ttime != null) gotNew = ttime[0];   // keep track of newTime without going thru ctreader...
@@ -874,7 +982,8 @@ public class CTweb {
     						case 'B':   
     							if(debug) System.err.println("binary data response...");
 
-    							byte[] bdata = tdata.getDataAsByteArray();		// get as single byte array vs chunks
+    							byte[] bdata = null;							// only materialized to scale images
+    							int blen = tdata.dataLength();					// else stream straight from cached bytes
 
 	   							// add header info about time limits
     							// JPW, in next 2 calls, change from sourcePath to source (ie, don't use full path)
@@ -892,7 +1001,7 @@ public class CTweb {
     							else if(chan.toLowerCase().endsWith(".mp4")) 	response.setContentType("video/mp4");    // mjm 4/10/24
     							else											response.setContentType("application/octet-stream");
 
-    							if(bdata == null || bdata.length==0) {
+    							if(blen==0) {
     								if(debug) System.err.println("No data for request: "+pathInfo);
     								formHeader(response, 0., 0., oldTime, newTime, lagTime);
     								formResponse(response, null);		// add CORS header even for error response
@@ -906,33 +1015,29 @@ public class CTweb {
     							}
 
     							// down-size large images
-    							if(chan.endsWith(".jpg") && (scaleImage>1) && bdata.length>100000) {	
-    								if(bdata.length<200000 && scaleImage>2) bdata = scale(bdata, 2);
-    								else									bdata = scale(bdata, scaleImage);	
+    							if(chan.endsWith(".jpg") && (scaleImage>1) && blen>100000) {	
+    								bdata = tdata.getDataAsByteArray();
+    								if(blen<200000 && scaleImage>2) bdata = scale(bdata, 2);
+    								else							bdata = scale(bdata, scaleImage);	
+    								blen = bdata.length;
     							}
     							
-    							if(bdata.length < 65536) {	// unchunked
-//    								System.err.println("b.length: "+bdata.length);
-    								response.setContentLength(bdata.length);
-    								response.getOutputStream().write(bdata);
+    							if(blen < 65536) {	// unchunked
+//    								System.err.println("b.length: "+blen);
+    								response.setContentLength(blen);
+    								if(bdata != null) 	response.getOutputStream().write(bdata);
+    								else				tdata.writeData(response.getOutputStream());
     							}
     							else {			// chunked transfer
     								OutputStream out = response.getOutputStream();
-    								InputStream input = new ByteArrayInputStream(bdata);		// only return 1st image?
-    								byte[] buffer = new byte[16384];
-    								int length;
-    								long totRead = 0;
-    								while ((length = input.read(buffer)) > 0){
-    									totRead += length;
-    									out.write(buffer, 0, length);
-    								}
-    								if(debug) System.err.println("chunked transfer for: "+chan+", totalBytes: "+totRead);
-    								input.close();
+    								if(bdata != null) 	out.write(bdata);
+    								else				tdata.writeData(out);
+    								if(debug) System.err.println("chunked transfer for: "+chan+", totalBytes: "+blen);
     								out.flush();
     							}
     							if(doProfile) System.err.println("doGet B time: "+((System.nanoTime()-startTime)/1000000.)+" ms");
 
-    							if(debug) System.err.println("binary data response, bytes: "+bdata.length);
+    							if(debug) System.err.println("binary data response, bytes: "+blen);
     							return;
 
     							// HTML table format (for import to spreadsheets)
@@ -961,23 +1066,11 @@ public class CTweb {
 
     							// all other types returned as rows of time,value strings
     						default:
-    							if(fetch=='t') {
-    								for(int i=time.length-numData; i<numData; i++) sbresp.append(formatTime(time[i])+"\n");		// most recent
-    							}
-    							else {
-    								strdata = tdata.getDataAsString(ftype);		// convert any/all numeric types to string
-    								if(strdata != null) {
-    									if(fetch=='d') 
-    										for(int i=time.length-numData; i<numData; i++) sbresp.append(strdata[i]+"\n");	
-    									else
-    										for(int i=time.length-numData; i<numData; i++) sbresp.append(formatTime(time[i]) +","+strdata[i]+"\n");	
-    								}
-    								else {
-    									System.err.println("Unrecognized ftype: "+ftype);
-    									formResponse(response, null);		// add CORS header even for error response
-    									response.sendError(HttpServletResponse.SC_NOT_FOUND);
-    									return;
-    								}
+    							if(fetch!='t' && !CTcsvWriter.isText(ftype)) {
+    								System.err.println("Unrecognized ftype: "+ftype);
+    								formResponse(response, null);		// add CORS header even for error response
+    								response.sendError(HttpServletResponse.SC_NOT_FOUND);
+    								return;
     							}
     							// add header info about time limits
     							// JPW, in next 2 calls, change from sourcePath to source (ie, don't use full path)
@@ -990,9 +1083,15 @@ public class CTweb {
     							formHeader(response, time[0], time[time.length-1], oldTime, newTime, lagTime);  
     							//    								response.setContentType(mimeType(pathInfo, "text/html"));
     							response.setContentType("text/html");		// all string data in this case!
-    							formResponse(response, sbresp);
+    							formResponse(response, null);
+    							
+    							// stream rows, formatted from primitive data straight to output buffer
+    							CTcsvWriter csv = new CTcsvWriter(response.getOutputStream(), response.getCharacterEncoding(), 65536);
+    							csv.writeRows(tdata, ftype, time.length-numData, numData, fetch);		// most recent
+    							csv.write(System.getProperty("line.separator"));				// as println
+    							csv.flush();
     							if(doProfile) System.err.println("doGet S time: "+((System.nanoTime()-startTime)/1000000.)+" ms, chan: "+chan);
-    							if(debug) System.err.println("CSV data response, length: "+sbresp.length());
+    							if(debug) System.err.println("CSV data response, length: "+csv.length());
 
     							return;
     						}
@@ -1241,7 +1340,7 @@ public class CTweb {
 		resp.addHeader("Access-Control-Allow-Methods", "GET, POST, HEAD, OPTIONS");   // CORS enable
 
 //		resp.addHeader("Access-Control-Expose-Headers", "oldest,newest,duration,time,lagtime,folders");
-		resp.addHeader("Access-Control-Expose-Headers", "oldest,newest,duration,time,lagtime");
+		resp.addHeader("Access-Control-Expose-Headers", "oldest,newest,duration,time,lagtime,ETag");
 		if(sbresp == null) return;
 		try {
 			resp.getWriter().println(sbresp.toString());
@@ -1250,6 +1349,18 @@ public class CTweb {
 		}
     }
     
+    // ETag source/channel listings:  catalog version, qualified by server start (versions restart with it)
+    private static final String listEpoch = Long.toHexString(System.currentTimeMillis());
+
+    private static boolean notModified(HttpServletRequest request, HttpServletResponse response, String tag) throws IOException {
+    	String etag = "\""+tag+"\"";
+    	response.addHeader("ETag", etag);
+    	if(!etag.equals(request.getHeader("If-None-Match"))) return false;
+    	formResponse(response, null);
+    	response.sendError(HttpServletResponse.SC_NOT_MODIFIED);
+    	return true;
+    }
+    
     private static String formatTime(double time) {
 		if(((long)time) == time) return(Long.toString((long)time));
 		else					 return Double.toString(time);		